@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the client benchmarks at 1, 8 and 64 threads, and prints the throughput and the bytes allocated per
+ * operation of each. This is the most the client can do on this machine, before any DB is involved.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks-*.jar com.yahoo.ycsb.benchmarks.BenchmarkRunner [regexp]
+ * </pre>
+ * The optional regular expression selects the benchmarks to run, as on the JMH command line.
+ */
+public class BenchmarkRunner
+{
+	static final int[] THREADS={1,8,64};
+
+	static final String ALLOCATION_RESULT="gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws RunnerException
+	{
+		String include=GeneratorBenchmark.class.getPackage().getName()+".*";
+		if (args.length>0)
+		{
+			include=args[0];
+		}
+
+		List<RunResult> results=new ArrayList<RunResult>();
+		for (int threads : THREADS)
+		{
+			Options opts=new OptionsBuilder()
+				.include(include)
+				.threads(threads)
+				.mode(Mode.Throughput)
+				.timeUnit(TimeUnit.SECONDS)
+				.addProfiler(GCProfiler.class)
+				.build();
+			results.addAll(new Runner(opts).run());
+		}
+
+		System.out.println();
+		System.out.println(String.format("%-60s %8s %16s %12s","Benchmark","Threads","ops/s","B/op"));
+		for (RunResult result : results)
+		{
+			String name=result.getParams().getBenchmark();
+			name=name.substring(name.lastIndexOf('.',name.lastIndexOf('.')-1)+1);
+			for (String key : result.getParams().getParamsKeys())
+			{
+				name+=" "+key+"="+result.getParams().getParam(key);
+			}
+			System.out.println(String.format("%-60s %8d %16.0f %12.1f",name,result.getParams().getThreads(),
+					result.getPrimaryResult().getScore(),allocation(result)));
+		}
+	}
+
+	/**
+	 * Return the bytes allocated per operation, as reported by the GC profiler.
+	 */
+	static double allocation(RunResult result)
+	{
+		for (Result<?> r : result.getSecondaryResults().values())
+		{
+			if (r.getLabel().endsWith(ALLOCATION_RESULT))
+			{
+				return r.getScore();
+			}
+		}
+		return Double.NaN;
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * Measures the cost of generating keys and records in CoreWorkload, the work the client does for every operation
+ * on top of the DB call. The DB is a BasicDB that does not print anything. Run with the GC profiler to see the
+ * allocation per operation, with and without recycled values:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks-*.jar CoreWorkloadBenchmark -prof gc
+ * </pre>
+ * and compare gc.alloc.rate.norm, the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoreWorkloadBenchmark
+{
+	@Param({"false","true"})
+	public String recyclevalues;
+
+	CoreWorkload _workload;
+
+	/**
+	 * The per-thread state: the workload's thread state and a DB that does nothing.
+	 */
+	@State(Scope.Thread)
+	public static class ClientState
+	{
+		Object _workloadstate;
+		DB _db;
+		long _keynum;
+
+		@Setup(Level.Trial)
+		public void setup(CoreWorkloadBenchmark benchmark) throws Exception
+		{
+			_workloadstate=benchmark._workload.initThread(benchmark.properties(),0,1);
+			_db=new BasicDB();
+			_db.getProperties().setProperty(BasicDB.VERBOSE,"false");
+			_db.init();
+		}
+	}
+
+	Properties properties()
+	{
+		Properties p=new Properties();
+		p.setProperty("recordcount","1000000");
+		p.setProperty("operationcount","1000000");
+		p.setProperty(CoreWorkload.RECYCLE_VALUES_PROPERTY,recyclevalues);
+		return p;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception
+	{
+		_workload=new CoreWorkload();
+		_workload.init(properties());
+	}
+
+	/**
+	 * Build a key name using the thread's key builder.
+	 */
+	@Benchmark
+	public String buildKeyName(ClientState state)
+	{
+		return _workload.buildKeyName(state._keynum++,(CoreWorkload.ThreadState)state._workloadstate);
+	}
+
+	/**
+	 * Build a key name the way it was done before there was per-thread state, for comparison.
+	 */
+	@Benchmark
+	public String buildKeyNameWithoutState(ClientState state)
+	{
+		return _workload.buildKeyName(state._keynum++);
+	}
+
+	/**
+	 * Do one transaction of the default operation mix (95% reads, 5% updates) against a DB that does nothing.
+	 */
+	@Benchmark
+	public boolean doTransaction(ClientState state)
+	{
+		return _workload.doTransaction(state._db,state._workloadstate);
+	}
+
+	/**
+	 * Build a key and a full record, and insert it into a DB that does nothing.
+	 */
+	@Benchmark
+	public boolean doInsert(ClientState state)
+	{
+		return _workload.doInsert(state._db,state._workloadstate);
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.ValuePool;
+import com.yahoo.ycsb.generator.AliasGenerator;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.SkewedLatestGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+
+/**
+ * Measures the generators and value producers on the per-operation path of the client. The generators are
+ * shared by all benchmark threads, as they are shared by all client threads, so running with more threads
+ * shows their contention; see {@link BenchmarkRunner}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark
+{
+	static final int RECORD_COUNT=1000000;
+
+	static final int FIELD_LENGTH=100;
+
+	ZipfianGenerator _zipfian;
+	ScrambledZipfianGenerator _scrambledzipfian;
+	UniformIntegerGenerator _uniform;
+	CounterGenerator _counter;
+	SkewedLatestGenerator _latest;
+	DiscreteGenerator _operationchooser;
+	AliasGenerator _aliasoperationchooser;
+	ValuePool _valuepool;
+
+	/**
+	 * The per-thread buffer that values are produced into.
+	 */
+	@State(Scope.Thread)
+	public static class ValueState
+	{
+		byte[] _buf=new byte[FIELD_LENGTH];
+		long _val;
+	}
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		_zipfian=new ZipfianGenerator(RECORD_COUNT);
+		_scrambledzipfian=new ScrambledZipfianGenerator(RECORD_COUNT);
+		_uniform=new UniformIntegerGenerator(0,RECORD_COUNT-1);
+		_counter=new CounterGenerator(RECORD_COUNT);
+		_latest=new SkewedLatestGenerator(new CounterGenerator(RECORD_COUNT));
+
+		//the operation mix of workload a
+		_operationchooser=new DiscreteGenerator();
+		_operationchooser.addValue(0.5,"READ");
+		_operationchooser.addValue(0.5,"UPDATE");
+		_aliasoperationchooser=new AliasGenerator(new double[] {0.5,0.5});
+		_valuepool=new ValuePool(1<<24,5,new Random());
+	}
+
+	@Benchmark
+	public long zipfianNextLong()
+	{
+		return _zipfian.nextLong();
+	}
+
+	@Benchmark
+	public int scrambledZipfianNextInt()
+	{
+		return _scrambledzipfian.nextInt();
+	}
+
+	@Benchmark
+	public int uniformNextInt()
+	{
+		return _uniform.nextInt();
+	}
+
+	@Benchmark
+	public int counterNextInt()
+	{
+		return _counter.nextInt();
+	}
+
+	@Benchmark
+	public int skewedLatestNextInt()
+	{
+		return _latest.nextInt();
+	}
+
+	@Benchmark
+	public String discreteNextString()
+	{
+		return _operationchooser.nextString();
+	}
+
+	@Benchmark
+	public int aliasNextInt()
+	{
+		return _aliasoperationchooser.nextInt();
+	}
+
+	/**
+	 * Produce one field value of the default length, the way a binding copies it out.
+	 */
+	@Benchmark
+	public byte[] randomByteIteratorNextBuf(ValueState state)
+	{
+		new RandomByteIterator(FIELD_LENGTH).nextBuf(state._buf,0);
+		return state._buf;
+	}
+
+	/**
+	 * Produce one field value of the default length from a value pool.
+	 */
+	@Benchmark
+	public byte[] valuePoolNextBuf(ValueState state)
+	{
+		_valuepool.newValue(FIELD_LENGTH).nextBuf(state._buf,0);
+		return state._buf;
+	}
+
+	@Benchmark
+	public long fnvHash64(ValueState state)
+	{
+		return Utils.FNVhash64(state._val++);
+	}
+}
@@ -462,7 +462,7 @@ public class CassandraClient10 extends DB
         {
           col = new Column();
           col.setName(ByteBuffer.wrap(entry.getKey().getBytes("UTF-8")));
-          col.setValue(ByteBuffer.wrap(entry.getValue().toArray()));
+          col.setValue(entry.getValue().toByteBuffer());
           col.setTimestamp(System.currentTimeMillis());
 
           column = new ColumnOrSuperColumn();
@@ -503,6 +503,101 @@ public class CassandraClient10 extends DB
     return Error;
   }
 
+  /**
+   * Update a batch of records in the database with a single batch_mutate call.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to write.
+   * @param values
+   *          The field/value pairs to update, one HashMap per key
+   * @return Zero on success, a non-zero error code on error
+   */
+  public int batchUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values)
+  {
+    return batchInsert(table, keys, values);
+  }
+
+  /**
+   * Insert a batch of records in the database with a single batch_mutate
+   * call, holding the mutations of every record of the batch.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to insert.
+   * @param values
+   *          The field/value pairs to insert, one HashMap per key
+   * @return Zero on success, a non-zero error code on error
+   */
+  public int batchInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values)
+  {
+    if (!_table.equals(table)) {
+      try
+      {
+        client.set_keyspace(table);
+        _table = table;
+      }
+      catch (Exception e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        return Error;
+      }
+    }
+
+    for (int i = 0; i < OperationRetries; i++)
+    {
+      if (_debug)
+      {
+        System.out.println("Inserting batch of " + keys.size() + " keys");
+      }
+
+      try
+      {
+        Map<ByteBuffer, Map<String, List<Mutation>>> batch = new HashMap<ByteBuffer, Map<String, List<Mutation>>>();
+        long timestamp = System.currentTimeMillis();
+        for (int k = 0; k < keys.size(); k++)
+        {
+          List<Mutation> rowmutations = new ArrayList<Mutation>(values.get(k).size());
+          for (Map.Entry<String, ByteIterator> entry : values.get(k).entrySet())
+          {
+            Column col = new Column();
+            col.setName(ByteBuffer.wrap(entry.getKey().getBytes("UTF-8")));
+            col.setValue(entry.getValue().toByteBuffer());
+            col.setTimestamp(timestamp);
+
+            ColumnOrSuperColumn column = new ColumnOrSuperColumn();
+            column.setColumn(col);
+
+            rowmutations.add(new Mutation().setColumn_or_supercolumn(column));
+          }
+          Map<String, List<Mutation>> rowmutationMap = new HashMap<String, List<Mutation>>();
+          rowmutationMap.put(column_family, rowmutations);
+          batch.put(ByteBuffer.wrap(keys.get(k).getBytes("UTF-8")), rowmutationMap);
+        }
+
+        client.batch_mutate(batch, writeConsistencyLevel);
+
+        return Ok;
+      } catch (Exception e)
+      {
+        errorexception = e;
+      }
+      try
+      {
+        Thread.sleep(500);
+      } catch (InterruptedException e)
+      {
+      }
+    }
+
+    errorexception.printStackTrace();
+    errorexception.printStackTrace(System.out);
+    return Error;
+  }
+
   /**
    * Delete a record from the database.
    *
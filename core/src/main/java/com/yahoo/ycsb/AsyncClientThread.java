@@ -0,0 +1,58 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+
+import com.yahoo.ycsb.throttle.ArrivalScheduler;
+
+/**
+ * A thread for executing transactions or data inserts against an {@link AsyncDB}. The workload sees a
+ * synchronous DB whose calls return as soon as the operation is submitted, so the thread can keep up to a
+ * given number of operations in flight. Latencies are recorded when the operations complete.
+ */
+class AsyncClientThread extends ClientThread
+{
+	BoundedAsyncDB _bounded;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param db the asynchronous DB implementation to use
+	 * @param inflight the maximum number of operations in flight at any time
+	 * @see ClientThread#ClientThread(DB, boolean, Workload, int, int, Properties, int, ArrivalScheduler, Warmup)
+	 */
+	public AsyncClientThread(AsyncDB db, int inflight, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, ArrivalScheduler scheduler, Warmup warmup)
+	{
+		super(new BoundedAsyncDB(db,inflight),dotransactions,workload,threadid,threadcount,props,opcount,scheduler,warmup);
+		_bounded=(BoundedAsyncDB)_db;
+	}
+
+	/**
+	 * Return the number of operations that have been submitted but have not completed yet.
+	 */
+	public int getInFlight()
+	{
+		return _bounded.getInFlight();
+	}
+
+	void finishOperations()
+	{
+		_bounded.drain();
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A layer for accessing a database through a non-blocking client library. Instead of returning a code, each
+ * operation is handed a {@link Callback} that the implementation invokes exactly once, when the operation has
+ * completed; the call itself should return as soon as the request has been sent. Callbacks may be invoked from
+ * any thread, including the calling one.
+ * <p>
+ * As with {@link DB}, each client thread gets its own instance, constructed with a no-argument constructor and
+ * initialized by init(). The client keeps a bounded number of operations in flight per thread (the "inflight"
+ * property), so a few threads can drive as many concurrent requests as the database can take.
+ * </p>
+ * Synchronous bindings can be used wherever an AsyncDB is expected through {@link AsyncDBAdapter}.
+ */
+public abstract class AsyncDB
+{
+	/**
+	 * Receives the result of an asynchronous operation.
+	 */
+	public interface Callback
+	{
+		/**
+		 * Called once the operation has completed.
+		 *
+		 * @param result Zero on success, a non-zero error code on error, as returned by the methods of {@link DB}
+		 */
+		public void complete(int result);
+	}
+
+	/**
+	 * Properties for configuring this DB.
+	 */
+	Properties _p=new Properties();
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_p=p;
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _p;
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+	}
+
+	/**
+	 * Cleanup any state for this DB. Only called once all operations of this instance have completed.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+	}
+
+	/**
+	 * Read a record from the database. Each field/value pair from the result will be stored in a HashMap
+	 * before the callback is invoked.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap of field/value pairs for the result
+	 * @param callback Invoked with the result code once the read has completed
+	 */
+	public abstract void read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result, Callback callback);
+
+	/**
+	 * Perform a range scan for a set of records in the database. Each field/value pair from the result will be
+	 * stored in a HashMap before the callback is invoked.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @param callback Invoked with the result code once the scan has completed
+	 */
+	public abstract void scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result, Callback callback);
+
+	/**
+	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+	 * record key, overwriting any existing values with the same field name.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @param callback Invoked with the result code once the update has completed
+	 */
+	public abstract void update(String table, String key, HashMap<String,ByteIterator> values, Callback callback);
+
+	/**
+	 * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+	 * record key.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param callback Invoked with the result code once the insert has completed
+	 */
+	public abstract void insert(String table, String key, HashMap<String,ByteIterator> values, Callback callback);
+
+	/**
+	 * Delete a record from the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @param callback Invoked with the result code once the delete has completed
+	 */
+	public abstract void delete(String table, String key, Callback callback);
+}
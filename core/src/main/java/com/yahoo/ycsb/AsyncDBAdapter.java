@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Runs a synchronous {@link DB} behind the {@link AsyncDB} interface. Each operation is executed on the calling
+ * thread, and its callback is invoked before the call returns, so a synchronous binding never has more than one
+ * operation in flight per client thread.
+ */
+public class AsyncDBAdapter extends AsyncDB
+{
+	DB _db;
+
+	public AsyncDBAdapter(DB db)
+	{
+		_db=db;
+	}
+
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	public void cleanup() throws DBException
+	{
+		_db.cleanup();
+	}
+
+	public void read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result, Callback callback)
+	{
+		callback.complete(_db.read(table,key,fields,result));
+	}
+
+	public void scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result, Callback callback)
+	{
+		callback.complete(_db.scan(table,startkey,recordcount,fields,result));
+	}
+
+	public void update(String table, String key, HashMap<String,ByteIterator> values, Callback callback)
+	{
+		callback.complete(_db.update(table,key,values));
+	}
+
+	public void insert(String table, String key, HashMap<String,ByteIterator> values, Callback callback)
+	{
+		callback.complete(_db.insert(table,key,values));
+	}
+
+	public void delete(String table, String key, Callback callback)
+	{
+		callback.complete(_db.delete(table,key));
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Wrapper around a "real" AsyncDB that measures latencies and counts return codes. The clock starts when an
+ * operation is submitted and stops when its callback is invoked.
+ */
+public class AsyncDBWrapper extends AsyncDB
+{
+	AsyncDB _db;
+	Measurements _measurements;
+
+	/**
+	 * Records the latency and return code of one operation when it completes, then passes the result on.
+	 */
+	class MeasuringCallback implements Callback
+	{
+		final String _op;
+		final Callback _next;
+		final long _ist;
+		final long _st;
+
+		MeasuringCallback(String op, Callback next)
+		{
+			_op=op;
+			_next=next;
+			//read on the submitting thread, the callback may run on another one
+			_ist=_measurements.getIntendedStartTimeNs();
+			_st=System.nanoTime();
+		}
+
+		public void complete(int result)
+		{
+			long en=System.nanoTime();
+			DBWrapper.measure(_measurements,_op,_ist,_st,en);
+			_measurements.reportReturnCode(_op,result);
+			_next.complete(result);
+		}
+	}
+
+	public AsyncDBWrapper(AsyncDB db)
+	{
+		_db=db;
+		_measurements=Measurements.getMeasurements();
+	}
+
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	public void cleanup() throws DBException
+	{
+		long st=System.nanoTime();
+		_db.cleanup();
+		long en=System.nanoTime();
+		DBWrapper.measure(_measurements,"CLEANUP",0,st,en);
+	}
+
+	public void read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result, Callback callback)
+	{
+		_db.read(table,key,fields,result,new MeasuringCallback("READ",callback));
+	}
+
+	public void scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result, Callback callback)
+	{
+		_db.scan(table,startkey,recordcount,fields,result,new MeasuringCallback("SCAN",callback));
+	}
+
+	public void update(String table, String key, HashMap<String,ByteIterator> values, Callback callback)
+	{
+		_db.update(table,key,values,new MeasuringCallback("UPDATE",callback));
+	}
+
+	public void insert(String table, String key, HashMap<String,ByteIterator> values, Callback callback)
+	{
+		_db.insert(table,key,values,new MeasuringCallback("INSERT",callback));
+	}
+
+	public void delete(String table, String key, Callback callback)
+	{
+		_db.delete(table,key,new MeasuringCallback("DELETE",callback));
+	}
+}
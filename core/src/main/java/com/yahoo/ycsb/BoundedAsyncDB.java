@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Presents an {@link AsyncDB} as a synchronous DB, so that workloads can drive it unchanged. Each call submits
+ * the operation and returns as soon as it has been accepted, blocking only while the maximum number of
+ * operations is already in flight. Since the outcome is not known yet, every call returns zero; failures show up
+ * in the return codes reported by {@link AsyncDBWrapper}. Workloads that must know when an insert has completed
+ * use {@link #insert(String, String, HashMap, Runnable)}. Results of reads and scans are filled in
+ * asynchronously, so workloads must not inspect them.
+ */
+public class BoundedAsyncDB extends DB
+{
+	AsyncDB _db;
+	int _maxinflight;
+	Semaphore _slots;
+
+	/**
+	 * Frees a slot when an operation completes. If submitting an operation throws, its slot is freed right away
+	 * instead, since the callback will never be called.
+	 */
+	final AsyncDB.Callback _release=new AsyncDB.Callback()
+	{
+		public void complete(int result)
+		{
+			_slots.release();
+		}
+	};
+
+	public BoundedAsyncDB(AsyncDB db, int maxinflight)
+	{
+		_db=db;
+		_maxinflight=maxinflight;
+		_slots=new Semaphore(maxinflight);
+	}
+
+	/**
+	 * Return the number of operations that have been submitted but have not completed yet.
+	 */
+	public int getInFlight()
+	{
+		return _maxinflight-_slots.availablePermits();
+	}
+
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	/**
+	 * Wait for all operations in flight to complete.
+	 */
+	public void drain()
+	{
+		_slots.acquireUninterruptibly(_maxinflight);
+		_slots.release(_maxinflight);
+	}
+
+	/**
+	 * Wait for all operations in flight to complete, then cleanup the underlying DB.
+	 */
+	public void cleanup() throws DBException
+	{
+		_slots.acquireUninterruptibly(_maxinflight);
+		try
+		{
+			_db.cleanup();
+		}
+		finally
+		{
+			_slots.release(_maxinflight);
+		}
+	}
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		_slots.acquireUninterruptibly();
+		try
+		{
+			_db.read(table,key,fields,result,_release);
+		}
+		catch (RuntimeException e)
+		{
+			_slots.release();
+			throw e;
+		}
+		return 0;
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		_slots.acquireUninterruptibly();
+		try
+		{
+			_db.scan(table,startkey,recordcount,fields,result,_release);
+		}
+		catch (RuntimeException e)
+		{
+			_slots.release();
+			throw e;
+		}
+		return 0;
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		_slots.acquireUninterruptibly();
+		try
+		{
+			_db.update(table,key,values,_release);
+		}
+		catch (RuntimeException e)
+		{
+			_slots.release();
+			throw e;
+		}
+		return 0;
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		_slots.acquireUninterruptibly();
+		try
+		{
+			_db.insert(table,key,values,_release);
+		}
+		catch (RuntimeException e)
+		{
+			_slots.release();
+			throw e;
+		}
+		return 0;
+	}
+
+	/**
+	 * Submit an insert, and run a task once it has completed. The slot of the insert is freed after the task has
+	 * run, so {@link #drain()} also waits for the task.
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, final Runnable oncomplete)
+	{
+		_slots.acquireUninterruptibly();
+		try
+		{
+			_db.insert(table,key,values,new AsyncDB.Callback()
+			{
+				public void complete(int result)
+				{
+					try
+					{
+						oncomplete.run();
+					}
+					finally
+					{
+						_slots.release();
+					}
+				}
+			});
+		}
+		catch (RuntimeException e)
+		{
+			try
+			{
+				oncomplete.run();
+			}
+			finally
+			{
+				_slots.release();
+			}
+			throw e;
+		}
+		return 0;
+	}
+
+	public int delete(String table, String key)
+	{
+		_slots.acquireUninterruptibly();
+		try
+		{
+			_db.delete(table,key,_release);
+		}
+		catch (RuntimeException e)
+		{
+			_slots.release();
+			throw e;
+		}
+		return 0;
+	}
+}
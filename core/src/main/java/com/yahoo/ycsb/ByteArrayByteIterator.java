@@ -16,10 +16,12 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 public class ByteArrayByteIterator extends ByteIterator {
 	byte[] str;
 	int off;
-	final int len;
+	int len;
 	public ByteArrayByteIterator(byte[] s) {
 		this.str = s;
 		this.off = 0;
@@ -32,6 +34,16 @@ public class ByteArrayByteIterator extends ByteIterator {
 		this.len = off + len;
 	}
 
+	/**
+	 * Start over on another slice of an array, so that the iterator can be
+	 * reused instead of allocating a new one.
+	 */
+	public void reset(byte[] s, int off, int len) {
+		this.str = s;
+		this.off = off;
+		this.len = off + len;
+	}
+
 	@Override
 	public boolean hasNext() {
 		return off < len;
@@ -44,6 +56,27 @@ public class ByteArrayByteIterator extends ByteIterator {
 		return ret;
 	}
 
+	@Override
+	public int nextBuf(byte[] buf, int buf_off) {
+		int n = Math.min(len - off, buf.length - buf_off);
+		System.arraycopy(str, off, buf, buf_off, n);
+		off += n;
+		return buf_off + n;
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		ByteBuffer ret = ByteBuffer.wrap(str, off, len - off).slice();
+		off = len;
+		return ret;
+	}
+
+	@Override
+	public void writeTo(ByteBuffer buf) {
+		buf.put(str, off, len - off);
+		off = len;
+	}
+
 	@Override
 	public long bytesLeft() {
 		return len - off;
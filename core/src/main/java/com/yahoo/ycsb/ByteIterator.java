@@ -16,6 +16,8 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.ArrayList;
 /**
@@ -39,6 +41,11 @@ import java.util.ArrayList;
  * The StringByteIterator class contains a number of convenience methods for
  * backend drivers that convert between Map&lt;String,String&gt; and
  * Map&lt;String,ByteBuffer&gt;.
+ * </p><p>
+ * Drivers for byte-based stores should prefer toByteBuffer() or writeTo(),
+ * which let iterators that already hold their contents hand them over
+ * without intermediate copies or Strings.
+ * </p>
  *
  * @author sears
  */
@@ -89,4 +96,30 @@ public abstract class ByteIterator implements Iterator<Byte> {
 	    return ret;
 	}
 
+	/**
+	 * Consumes remaining contents of this object, and returns them as a
+	 * ByteBuffer holding exactly those bytes, from its position to its limit.
+	 * Iterators over contents already in memory return a view of it rather
+	 * than a copy, so the buffer may be shared with other values and must not
+	 * be modified. (It is not made read-only, since that hides the backing
+	 * array from libraries, such as Thrift, that use it to avoid a copy.)
+	 */
+	public ByteBuffer toByteBuffer() {
+	    return ByteBuffer.wrap(toArray());
+	}
+
+	/**
+	 * Consumes remaining contents of this object, writing them into the given
+	 * buffer at its position, and advancing the position past them.
+	 *
+	 * @throws BufferOverflowException if the buffer does not have room for
+	 *         all the remaining contents; nothing is written in that case
+	 */
+	public void writeTo(ByteBuffer buf) {
+	    if (buf.remaining() < bytesLeft()) { throw new BufferOverflowException(); }
+	    while(hasNext()) {
+		buf.put(nextByte());
+	    }
+	}
+
 }
@@ -19,325 +19,150 @@ package com.yahoo.ycsb;
 
 
 import java.io.*;
-import java.text.DecimalFormat;
+import java.lang.reflect.Method;
 import java.util.*;
 
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.throttle.ArrivalScheduler;
 
 //import org.apache.log4j.BasicConfigurator;
 
 /**
- * A thread to periodically show the status of the experiment, to reassure you that progress is being made.
- * 
- * @author cooperb
- *
+ * Main class for executing YCSB.
  */
-class StatusThread extends Thread
+public class Client
 {
-	Vector<Thread> _threads;
-	String _label;
-	boolean _standardstatus;
+
+	public static final String OPERATION_COUNT_PROPERTY="operationcount";
+
+	public static final String RECORD_COUNT_PROPERTY="recordcount";
+
+	public static final String WORKLOAD_PROPERTY="workload";
 	
 	/**
-	 * The interval for reporting status.
+	 * Indicates how many inserts to do, if less than recordcount. Useful for partitioning
+	 * the load among multiple servers, if the client is the bottleneck. Additionally, workloads
+	 * should support the "insertstart" property, which tells them which record to start at.
 	 */
-	public static final long sleeptime=10000;
-
-	public StatusThread(Vector<Thread> threads, String label, boolean standardstatus)
-	{
-		_threads=threads;
-		_label=label;
-		_standardstatus=standardstatus;
-	}
+	public static final String INSERT_COUNT_PROPERTY="insertcount";
+	
+	/**
+   * The maximum amount of time (in seconds) for which the benchmark will be run.
+   */
+  public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
 	/**
-	 * Run and periodically report status.
+	 * The minimum length of the warmup at the start of the run, in seconds. Operations run as usual during the
+	 * warmup (and count towards operationcount), but their latencies and return codes are not kept, and the
+	 * reported RunTime and Throughput only cover the rest of the run.
 	 */
-	public void run()
-	{
-		long st=System.currentTimeMillis();
+	public static final String WARMUP_TIME_PROPERTY="warmuptime";
 
-		long lasten=st;
-		long lasttotalops=0;
-		
-		boolean alldone;
+	public static final String WARMUP_TIME_PROPERTY_DEFAULT="0";
 
-		do 
-		{
-			alldone=true;
+	/**
+	 * The minimum number of operations done by all threads during the warmup. If both this and warmuptime are
+	 * set, the warmup lasts until both are reached.
+	 */
+	public static final String WARMUP_OPS_PROPERTY="warmupops";
 
-			int totalops=0;
+	public static final String WARMUP_OPS_PROPERTY_DEFAULT="0";
 
-			//terminate this thread when all the worker threads are done
-			for (Thread t : _threads)
-			{
-				if (t.getState()!=Thread.State.TERMINATED)
-				{
-					alldone=false;
-				}
+	/**
+	 * The kind of thread each client runs on: "platform" (the default) for one operating system thread per
+	 * client, or "virtual" for virtual threads, which need a JVM that supports them (Java 21 or later). Since
+	 * virtual threads are cheap while blocked in I/O, this allows a threadcount of tens of thousands of
+	 * clients with blocking bindings.
+	 */
+	public static final String THREAD_MODEL_PROPERTY="threadmodel";
 
-				ClientThread ct=(ClientThread)t;
-				totalops+=ct.getOpsDone();
-			}
+	public static final String THREAD_MODEL_PROPERTY_DEFAULT="platform";
 
-			long en=System.currentTimeMillis();
+	/**
+	 * The maximum number of operations each client thread keeps in flight. Values above 1 (or a DB class that
+	 * extends {@link AsyncDB}) run the client threads asynchronously; synchronous DB classes then still complete
+	 * one operation at a time.
+	 */
+	public static final String INFLIGHT_PROPERTY="inflight";
 
-			long interval=en-st;
-			//double throughput=1000.0*((double)totalops)/((double)interval);
+	public static final String INFLIGHT_PROPERTY_DEFAULT="1";
 
-			double curthroughput=1000.0*(((double)(totalops-lasttotalops))/((double)(en-lasten)));
-			
-			lasttotalops=totalops;
-			lasten=en;
-			
-			DecimalFormat d = new DecimalFormat("#.##");
-			
-			if (totalops==0)
-			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
-			}
-			else
-			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
-			}
+	/**
+	 * The number of local worker JVMs to run the load phase in. With more than one, this client only coordinates:
+	 * it splits the records to insert into one key range per worker, and merges the measurements of the workers
+	 * when they are done (see {@link LoadCoordinator}).
+	 */
+	public static final String PROCESSES_PROPERTY="processes";
 
-			if (_standardstatus)
-			{
-			if (totalops==0)
-			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
-			}
-			else
-			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
-			}
-			}
+	public static final String PROCESSES_PROPERTY_DEFAULT="1";
 
-			try
-			{
-				sleep(sleeptime);
-			}
-			catch (InterruptedException e)
-			{
-				//do nothing
-			}
+	/**
+	 * A file listing phases to run back to back in this client, each with its own properties, such as the
+	 * operation mix, target, threadcount and maxexecutiontime (see {@link PhaseRunner}). The workload and the DB
+	 * connections are only set up once, and the measurements are exported per phase. -load and -t are ignored.
+	 */
+	public static final String SCHEDULE_PROPERTY="schedule";
 
-		}
-		while (!alldone);
-	}
-}
+	/**
+	 * Search for the highest target throughput that meets a latency SLO within this client, by raising the target
+	 * in steps ("step") or by bisection ("binary"), see {@link SaturationSearch}. -load and -t are ignored.
+	 */
+	public static final String SEARCH_PROPERTY="search";
 
-/**
- * A thread for executing transactions or data inserts to the database.
- * 
- * @author cooperb
- *
- */
-class ClientThread extends Thread
-{
-	DB _db;
-	boolean _dotransactions;
-	Workload _workload;
-	int _opcount;
-	double _target;
+	/**
+	 * Run the workload unthrottled at each of a comma separated list of thread counts within this client, and fit
+	 * the Universal Scalability Law to the throughputs to predict where they peak, see {@link ScalabilitySweep}.
+	 * -load and -t are ignored.
+	 */
+	public static final String SWEEP_PROPERTY="sweep";
 
-	int _opsdone;
-	int _threadid;
-	int _threadcount;
-	Object _workloadstate;
-	Properties _props;
+	/**
+	 * The interval between status reports (shown with -s), in milliseconds. At least 100.
+	 */
+	public static final String STATUS_INTERVAL_PROPERTY="status.interval";
 
+	public static final String STATUS_INTERVAL_PROPERTY_DEFAULT="10000";
 
 	/**
-	 * Constructor.
-	 * 
-	 * @param db the DB implementation to use
-	 * @param dotransactions true to do transactions, false to insert data
-	 * @param workload the workload to use
-	 * @param threadid the id of this thread 
-	 * @param threadcount the total number of threads 
-	 * @param props the properties defining the experiment
-	 * @param opcount the number of operations (transactions or inserts) to do
-	 * @param targetperthreadperms target number of operations per thread per ms
+	 * The format of status reports: "text" for a human readable summary, or "json" for one JSON object per line
+	 * with the throughput and latency percentiles of each operation over the last interval.
 	 */
-	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms)
-	{
-		//TODO: consider removing threadcount and threadid
-		_db=db;
-		_dotransactions=dotransactions;
-		_workload=workload;
-		_opcount=opcount;
-		_opsdone=0;
-		_target=targetperthreadperms;
-		_threadid=threadid;
-		_threadcount=threadcount;
-		_props=props;
-		//System.out.println("Interval = "+interval);
-	}
+	public static final String STATUS_FORMAT_PROPERTY="status.format";
 
-	public int getOpsDone()
-	{
-		return _opsdone;
-	}
+	public static final String STATUS_FORMAT_PROPERTY_DEFAULT="text";
 
-	public void run()
-	{
-		try
-		{
-			_db.init();
-		}
-		catch (DBException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
+	/**
+	 * The file to write JSON status reports to. If not set, they are written to standard error, like text status.
+	 */
+	public static final String STATUS_FILE_PROPERTY="status.file";
 
-		try
-		{
-			_workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-		}
-		catch (WorkloadException e)
+	/**
+	 * Create an unstarted thread for running a client.
+	 *
+	 * @param virtual true for a virtual thread, false for a platform thread
+	 * @return the thread, or null if virtual threads are not supported by this JVM
+	 */
+	static Thread newClientThread(Runnable client, boolean virtual)
+	{
+		if (!virtual)
 		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
+			return new Thread(client);
 		}
 
-		//spread the thread operations out so they don't all hit the DB at the same time
+		//looked up reflectively, virtual threads are not part of the Java version we compile against
 		try
 		{
-		   //GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-		   //and the sleep() doesn't make sense for granularities < 1 ms anyway
-		   if ( (_target>0) && (_target<=1.0) ) 
-		   {
-		      sleep(Utils.random().nextInt((int)(1.0/_target)));
-		   }
-		}
-		catch (InterruptedException e)
-		{
-		  // do nothing.
-		}
-		
-		try
-		{
-			if (_dotransactions)
-			{
-				long st=System.currentTimeMillis();
-
-				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-				{
-
-					if (!_workload.doTransaction(_db,_workloadstate))
-					{
-						break;
-					}
-
-					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-
-						}
-					}
-				}
-			}
-			else
-			{
-				long st=System.currentTimeMillis();
-
-				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-				{
-
-					if (!_workload.doInsert(_db,_workloadstate))
-					{
-						break;
-					}
-
-					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try 
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-						}
-					}
-				}
-			}
+			Object builder=Thread.class.getMethod("ofVirtual").invoke(null);
+			Method unstarted=Class.forName("java.lang.Thread$Builder").getMethod("unstarted",Runnable.class);
+			return (Thread)unstarted.invoke(builder,client);
 		}
 		catch (Exception e)
 		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			System.exit(0);
-		}
-
-		try
-		{
-			_db.cleanup();
-		}
-		catch (DBException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
+			return null;
 		}
 	}
-}
-
-/**
- * Main class for executing YCSB.
- */
-public class Client
-{
-
-	public static final String OPERATION_COUNT_PROPERTY="operationcount";
-
-	public static final String RECORD_COUNT_PROPERTY="recordcount";
-
-	public static final String WORKLOAD_PROPERTY="workload";
-	
-	/**
-	 * Indicates how many inserts to do, if less than recordcount. Useful for partitioning
-	 * the load among multiple servers, if the client is the bottleneck. Additionally, workloads
-	 * should support the "insertstart" property, which tells them which record to start at.
-	 */
-	public static final String INSERT_COUNT_PROPERTY="insertcount";
-	
-	/**
-   * The maximum amount of time (in seconds) for which the benchmark will be run.
-   */
-  public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
 	public static void usageMessage()
 	{
@@ -365,6 +190,7 @@ public class Client
 		System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
 		System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
 		System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
+		System.out.println("To run the load phase from multiple processes on this server, set the \""+PROCESSES_PROPERTY+"\" property");
 	}
 
 	public static boolean checkRequiredProperties(Properties props)
@@ -379,46 +205,98 @@ public class Client
 	}
 
 
+	/**
+	 * Open the destination of JSON status reports, if status.format asks for them. Exits on a bad status
+	 * format or status file.
+	 *
+	 * @return the stream to write JSON status reports to, or null for text status
+	 */
+	static PrintStream openJsonStatus(Properties props)
+	{
+		PrintStream json=null;
+		String statusformat=props.getProperty(STATUS_FORMAT_PROPERTY,STATUS_FORMAT_PROPERTY_DEFAULT);
+		if (statusformat.compareTo("json")==0)
+		{
+			json=System.err;
+			String statusfile=props.getProperty(STATUS_FILE_PROPERTY);
+			if (statusfile!=null)
+			{
+				try
+				{
+					json=new PrintStream(new FileOutputStream(statusfile),false);
+				}
+				catch (IOException e)
+				{
+					System.out.println("Could not open "+STATUS_FILE_PROPERTY+": "+e.getMessage());
+					System.exit(0);
+				}
+			}
+		}
+		else if (statusformat.compareTo("text")!=0)
+		{
+			System.out.println("Unknown status format \""+statusformat+"\", must be text or json");
+			System.exit(0);
+		}
+		return json;
+	}
+
+	/**
+	 * Create the exporter configured by the "exporter" property, writing to the "exportfile" property, or
+	 * to stdout if it is not set.
+	 * @throws IOException if the export file could not be opened
+	 */
+	static MeasurementsExporter newExporter(Properties props) throws IOException
+	{
+		// if no destination file is provided the results will be written to stdout
+		OutputStream out;
+		String exportFile = props.getProperty("exportfile");
+		if (exportFile == null)
+		{
+			out = System.out;
+		} else
+		{
+			out = new FileOutputStream(exportFile);
+		}
+
+		// if no exporter is provided the default text one will be used
+		String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+		try
+		{
+			return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+		} catch (Exception e)
+		{
+			System.err.println("Could not find exporter " + exporterStr
+					+ ", will use default text reporter.");
+			e.printStackTrace();
+			return new TextMeasurementsExporter(out);
+		}
+	}
+
+	/**
+	 * Exports the measurements to either sysout or a file using the exporter
+	 * loaded from conf.
+	 * @throws IOException Either failed to write to output stream or failed to close it.
+	 */
+	static void exportMeasurements(Properties props, int opcount, long runtime)
+			throws IOException
+	{
+		exportMeasurements(props, opcount, runtime, -1);
+	}
+
 	/**
 	 * Exports the measurements to either sysout or a file using the exporter
 	 * loaded from conf.
+	 * @param missed the operations the throttle missed, or -1 if not throttled
 	 * @throws IOException Either failed to write to output stream or failed to close it.
 	 */
-	private static void exportMeasurements(Properties props, int opcount, long runtime)
+	static void exportMeasurements(Properties props, int opcount, long runtime, long missed)
 			throws IOException
 	{
 		MeasurementsExporter exporter = null;
 		try
 		{
-			// if no destination file is provided the results will be written to stdout
-			OutputStream out;
-			String exportFile = props.getProperty("exportfile");
-			if (exportFile == null)
-			{
-				out = System.out;
-			} else
-			{
-				out = new FileOutputStream(exportFile);
-			}
-
-			// if no exporter is provided the default text one will be used
-			String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-			try
-			{
-				exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
-			} catch (Exception e)
-			{
-				System.err.println("Could not find exporter " + exporterStr
-						+ ", will use default text reporter.");
-				e.printStackTrace();
-				exporter = new TextMeasurementsExporter(out);
-			}
-
-			exporter.write("OVERALL", "RunTime(ms)", runtime);
-			double throughput = 1000.0 * ((double) opcount) / ((double) runtime);
-			exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
-
-			Measurements.getMeasurements().exportMeasurements(exporter);
+			exporter = newExporter(props);
+			exportMeasurements(exporter, opcount, runtime, missed);
 		} finally
 		{
 			if (exporter != null)
@@ -427,6 +305,37 @@ public class Client
 			}
 		}
 	}
+
+	/**
+	 * Exports the overall run time and throughput, and the measurements.
+	 * @throws IOException if writing failed
+	 */
+	static void exportMeasurements(MeasurementsExporter exporter, int opcount, long runtime)
+			throws IOException
+	{
+		exportMeasurements(exporter, opcount, runtime, -1);
+	}
+
+	/**
+	 * Exports the overall run time, operation count and throughput, the operations
+	 * the throttle missed, and the measurements.
+	 * @param missed the operations the throttle missed, or -1 if not throttled
+	 * @throws IOException if writing failed
+	 */
+	static void exportMeasurements(MeasurementsExporter exporter, int opcount, long runtime, long missed)
+			throws IOException
+	{
+		exporter.write("OVERALL", "RunTime(ms)", runtime);
+		exporter.write("OVERALL", "Operations", opcount);
+		double throughput = (runtime > 0) ? 1000.0 * ((double) opcount) / ((double) runtime) : 0;
+		exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+		if (missed >= 0)
+		{
+			exporter.write("OVERALL", "MissedPermits", (int) missed);
+		}
+
+		Measurements.getMeasurements().exportMeasurements(exporter);
+	}
 	
 	@SuppressWarnings("unchecked")
 	public static void main(String[] args)
@@ -610,14 +519,6 @@ public class Client
 		dbname=props.getProperty("db","com.yahoo.ycsb.BasicDB");
 		target=Integer.parseInt(props.getProperty("target","0"));
 		
-		//compute the target throughput
-		double targetperthreadperms=-1;
-		if (target>0)
-		{
-			double targetperthread=((double)target)/((double)threadcount);
-			targetperthreadperms=targetperthread/1000.0;
-		}	 
-
 		System.out.println("YCSB Client 0.1");
 		System.out.print("Command line:");
 		for (int i=0; i<args.length; i++)
@@ -625,6 +526,33 @@ public class Client
 			System.out.print(" "+args[i]);
 		}
 		System.out.println();
+
+		int processes=Integer.parseInt(props.getProperty(PROCESSES_PROPERTY,PROCESSES_PROPERTY_DEFAULT));
+		if (processes>1)
+		{
+			if (dotransactions)
+			{
+				System.out.println(PROCESSES_PROPERTY+" > 1 is only supported for the load phase");
+				System.exit(0);
+			}
+			System.exit(new LoadCoordinator(props,processes,status,label).run());
+		}
+
+		if (props.getProperty(SCHEDULE_PROPERTY)!=null)
+		{
+			System.exit(new PhaseRunner(props,status,label).run());
+		}
+
+		if (props.getProperty(SEARCH_PROPERTY)!=null)
+		{
+			System.exit(new SaturationSearch(props,status,label).run());
+		}
+
+		if (props.getProperty(SWEEP_PROPERTY)!=null)
+		{
+			System.exit(new ScalabilitySweep(props,status,label).run());
+		}
+
 		System.err.println("Loading workload...");
 		
 		//show a warning message that creating the workload is taking a while
@@ -703,14 +631,66 @@ public class Client
 			}
 		}
 
+		int inflight=Integer.parseInt(props.getProperty(INFLIGHT_PROPERTY,INFLIGHT_PROPERTY_DEFAULT));
+		boolean async=false;
+		try
+		{
+			async=(inflight>1) || DBFactory.isAsyncDB(dbname);
+		}
+		catch (UnknownDBException e)
+		{
+			System.out.println("Unknown DB "+dbname);
+			System.exit(0);
+		}
+		if (async && (inflight<1))
+		{
+			inflight=1;
+		}
+
+		boolean virtual=false;
+		String threadmodel=props.getProperty(THREAD_MODEL_PROPERTY,THREAD_MODEL_PROPERTY_DEFAULT);
+		if (threadmodel.compareTo("virtual")==0)
+		{
+			virtual=true;
+		}
+		else if (threadmodel.compareTo("platform")!=0)
+		{
+			System.out.println("Unknown thread model \""+threadmodel+"\", must be platform or virtual");
+			System.exit(0);
+		}
+
+		long warmuptime=Long.parseLong(props.getProperty(WARMUP_TIME_PROPERTY,WARMUP_TIME_PROPERTY_DEFAULT));
+		long warmupops=Long.parseLong(props.getProperty(WARMUP_OPS_PROPERTY,WARMUP_OPS_PROPERTY_DEFAULT));
+		Warmup warmup=new Warmup(Measurements.getMeasurements(),warmuptime*1000,warmupops);
+
+		ArrivalScheduler[] schedulers=null;
+		try
+		{
+			schedulers=ArrivalScheduler.newSchedulers(props,target,threadcount);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
+
+		Vector<ClientThread> clients=new Vector<ClientThread>();
 		Vector<Thread> threads=new Vector<Thread>();
 
 		for (int threadid=0; threadid<threadcount; threadid++)
 		{
 			DB db=null;
+			AsyncDB asyncdb=null;
 			try
 			{
-				db=DBFactory.newDB(dbname,props);
+				if (async)
+				{
+					asyncdb=DBFactory.newAsyncDB(dbname,props);
+				}
+				else
+				{
+					db=DBFactory.newDB(dbname,props);
+				}
 			}
 			catch (UnknownDBException e)
 			{
@@ -718,8 +698,24 @@ public class Client
 				System.exit(0);
 			}
 
-			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
+			ClientThread client;
+			if (async)
+			{
+				client=new AsyncClientThread(asyncdb,inflight,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,schedulers[threadid],warmup);
+			}
+			else
+			{
+				client=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,schedulers[threadid],warmup);
+			}
+
+			Thread t=newClientThread(client,virtual);
+			if (t==null)
+			{
+				System.out.println("Virtual threads are not supported by this JVM, use "+THREAD_MODEL_PROPERTY+"=platform");
+				System.exit(0);
+			}
 
+			clients.add(client);
 			threads.add(t);
 			//t.start();
 		}
@@ -733,12 +729,37 @@ public class Client
 			{
 				standardstatus=true;
 			}	
-			statusthread=new StatusThread(threads,label,standardstatus);
+			long statusinterval=Long.parseLong(props.getProperty(STATUS_INTERVAL_PROPERTY,STATUS_INTERVAL_PROPERTY_DEFAULT));
+			if (statusinterval<100)
+			{
+				System.out.println(STATUS_INTERVAL_PROPERTY+" must be at least 100 ms");
+				System.exit(0);
+			}
+			PrintStream json=openJsonStatus(props);
+			statusthread=new StatusThread(threads,clients,label,standardstatus,statusinterval,json);
 			statusthread.start();
 		}
 
+		Telemetry telemetry=null;
+
+		if (Telemetry.isEnabled(props))
+		{
+			try
+			{
+				telemetry=new Telemetry(props,Measurements.getMeasurements(),clients);
+				telemetry.start();
+			}
+			catch (Exception e)
+			{
+				System.out.println("Could not start telemetry: "+e);
+				System.exit(0);
+			}
+		}
+
 		long st=System.currentTimeMillis();
 
+		warmup.start(st);
+
 		for (Thread t : threads)
 		{
 			t.start();
@@ -758,14 +779,37 @@ public class Client
 			try
 			{
 				t.join();
-				opsDone += ((ClientThread)t).getOpsDone();
 			}
 			catch (InterruptedException e)
 			{
 			}
 		}
 
+		for (ClientThread client : clients)
+		{
+			opsDone += client.getOpsDone()-client.getWarmupOpsDone();
+		}
+
 		long en=System.currentTimeMillis();
+
+		//only the steady state after the warmup is reported
+		warmup.stop();
+		if (warmup.isOver())
+		{
+			st=warmup.getEnd();
+		}
+		else
+		{
+			System.err.println("The run ended before the warmup did, nothing was measured");
+			st=en;
+		}
+
+		Measurements.getMeasurements().closeIntervalLog();
+
+		if (telemetry!=null)
+		{
+			telemetry.stop();
+		}
 		
 		if (terminator != null && !terminator.isInterrupted()) {
       terminator.interrupt();
@@ -789,7 +833,7 @@ public class Client
 
 		try
 		{
-			exportMeasurements(props, opsDone, en - st);
+			exportMeasurements(props, opsDone, en - st, ClientThread.getMissed(clients));
 		} catch (IOException e)
 		{
 			System.err.println("Could not export measurements, error: " + e.getMessage());
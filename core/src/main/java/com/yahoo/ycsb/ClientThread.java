@@ -0,0 +1,354 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.Set;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.throttle.ArrivalScheduler;
+
+/**
+ * A client executing transactions or data inserts to the database. Each client runs on its own thread,
+ * either a platform thread or a virtual thread (see {@link Client#THREAD_MODEL_PROPERTY}).
+ * 
+ * @author cooperb
+ *
+ */
+class ClientThread implements Runnable
+{
+	DB _db;
+	boolean _dotransactions;
+	Workload _workload;
+	int _opcount;
+	ArrivalScheduler _scheduler;
+
+	/**
+	 * Only written by the thread running this client; volatile so the status thread can read it without locking.
+	 */
+	volatile int _opsdone;
+	int _threadid;
+	int _threadcount;
+	Object _workloadstate;
+	Properties _props;
+	Measurements _measurements;
+	volatile boolean _done;
+
+	/**
+	 * True while an operation of this thread is executing, rather than waiting for the throttle.
+	 */
+	volatile boolean _executing;
+
+	Warmup _warmup;
+
+	/**
+	 * The number of operations this thread did during the warmup, once it has seen the warmup end.
+	 */
+	volatile int _warmupopsdone;
+	volatile boolean _inwarmup;
+
+	/**
+	 * True if the DB is initialized and cleaned up by the caller, so that it can be shared by the threads of
+	 * several phases (see {@link PhaseRunner}). The thread then only waits for its operations to complete.
+	 */
+	boolean _shareddb;
+
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param db the DB implementation to use
+	 * @param dotransactions true to do transactions, false to insert data
+	 * @param workload the workload to use
+	 * @param threadid the id of this thread 
+	 * @param threadcount the total number of threads 
+	 * @param props the properties defining the experiment
+	 * @param opcount the number of operations (transactions or inserts) to do
+	 * @param scheduler the scheduler that paces the operations of this thread, or null to run unthrottled
+	 * @param warmup the warmup of the run, which the operations of this thread count towards
+	 */
+	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, ArrivalScheduler scheduler, Warmup warmup)
+	{
+		//TODO: consider removing threadcount and threadid
+		_db=db;
+		_dotransactions=dotransactions;
+		_workload=workload;
+		_opcount=opcount;
+		_opsdone=0;
+		_scheduler=scheduler;
+		_warmup=warmup;
+		_inwarmup=!warmup.isOver();
+		_threadid=threadid;
+		_threadcount=threadcount;
+		_props=props;
+		_measurements=Measurements.getMeasurements();
+		//System.out.println("Interval = "+interval);
+	}
+
+	/**
+	 * Wait until the next operation is due, and let Measurements know when it was scheduled to start.
+	 */
+	void throttle()
+	{
+		if (_scheduler!=null)
+		{
+			_measurements.setIntendedStartTimeNs(_scheduler.acquire());
+		}
+	}
+
+	/**
+	 * Return the number of operations that are due but have not been issued yet.
+	 */
+	public long getOutstanding()
+	{
+		if ( (_scheduler==null) || _done )
+		{
+			return 0;
+		}
+		return _scheduler.getOutstanding();
+	}
+
+	/**
+	 * Return the number of operations that are due but have not been issued yet by any of the clients that are
+	 * still running. A scheduler shared by several clients is only counted once.
+	 */
+	static long getOutstanding(Collection<ClientThread> clients)
+	{
+		long ret=0;
+		for (ArrivalScheduler scheduler : getSchedulers(clients,true))
+		{
+			ret+=scheduler.getOutstanding();
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the throughput the clients that are still running are aiming for together, in operations per
+	 * second, or -1 if they are not throttled.
+	 */
+	static double getTargetRate(Collection<ClientThread> clients)
+	{
+		Set<ArrivalScheduler> schedulers=getSchedulers(clients,true);
+		if (schedulers.isEmpty())
+		{
+			return -1;
+		}
+		double ret=0;
+		for (ArrivalScheduler scheduler : schedulers)
+		{
+			ret+=scheduler.getTargetRate();
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the number of arrivals the throttle of the clients missed, i.e. dropped or issued late, or -1 if they
+	 * are not throttled.
+	 *
+	 * @see ArrivalScheduler#THROTTLE_BURST_PROPERTY
+	 */
+	static long getMissed(Collection<ClientThread> clients)
+	{
+		Set<ArrivalScheduler> schedulers=getSchedulers(clients,false);
+		if (schedulers.isEmpty())
+		{
+			return -1;
+		}
+		long ret=0;
+		for (ArrivalScheduler scheduler : schedulers)
+		{
+			ret+=scheduler.getMissed();
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the distinct schedulers of the clients.
+	 *
+	 * @param running true for only those of the clients that are still running
+	 */
+	static Set<ArrivalScheduler> getSchedulers(Collection<ClientThread> clients, boolean running)
+	{
+		Set<ArrivalScheduler> ret=Collections.newSetFromMap(new IdentityHashMap<ArrivalScheduler,Boolean>());
+		for (ClientThread client : clients)
+		{
+			if ( (client._scheduler!=null) && !(running && client._done) )
+			{
+				ret.add(client._scheduler);
+			}
+		}
+		return ret;
+	}
+
+	public int getOpsDone()
+	{
+		return _opsdone;
+	}
+
+	/**
+	 * Return the number of operations done during the warmup, which are not measured.
+	 */
+	public int getWarmupOpsDone()
+	{
+		return _inwarmup ? _opsdone : _warmupopsdone;
+	}
+
+	/**
+	 * Count an operation as done, towards the warmup as well while it lasts.
+	 */
+	void operationDone()
+	{
+		_opsdone++;
+		if (_inwarmup && _warmup.operationDone())
+		{
+			_warmupopsdone=_opsdone;
+			_inwarmup=false;
+		}
+	}
+
+	/**
+	 * Return the number of operations that have been issued but have not completed yet. A synchronous client has
+	 * at most one.
+	 */
+	public int getInFlight()
+	{
+		return _executing ? 1 : 0;
+	}
+
+	public void run()
+	{
+		try
+		{
+			runClient();
+		}
+		finally
+		{
+			_done=true;
+		}
+	}
+
+	void runClient()
+	{
+		if (!_shareddb)
+		{
+			try
+			{
+				_db.init();
+			}
+			catch (DBException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				return;
+			}
+		}
+
+		try
+		{
+			_workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return;
+		}
+
+		//the scheduler spreads the thread operations out so they don't all hit the DB at the same time
+		try
+		{
+			if (_dotransactions)
+			{
+				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
+				{
+					throttle();
+
+					_executing=true;
+					boolean more=_workload.doTransaction(_db,_workloadstate);
+					_executing=false;
+					if (!more)
+					{
+						break;
+					}
+
+					operationDone();
+				}
+			}
+			else
+			{
+				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
+				{
+					throttle();
+
+					_executing=true;
+					boolean more=_workload.doInsert(_db,_workloadstate);
+					_executing=false;
+					if (!more)
+					{
+						break;
+					}
+
+					operationDone();
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		try
+		{
+			_workload.cleanupThread(_db,_workloadstate);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+
+		if (_shareddb)
+		{
+			finishOperations();
+			return;
+		}
+
+		try
+		{
+			_db.cleanup();
+		}
+		catch (DBException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return;
+		}
+	}
+
+	/**
+	 * Wait for the operations of this thread to complete, without cleaning up its DB.
+	 */
+	void finishOperations()
+	{
+	}
+}
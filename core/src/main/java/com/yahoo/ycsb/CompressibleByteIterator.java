@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A ByteIterator that generates data of a given compressibility. The data is made of chunks that start with
+ * random printable bytes and continue with a repeat of them, so that LZ-style compressors (Snappy, LZ4, the
+ * first stage of gzip) shrink each chunk to about its random part. With a compressibility of 0.5, half of each
+ * chunk is random and the data compresses to about half its size; with 0, all of it is random; with 1, it is a
+ * run of spaces.
+ * <p>
+ * The random bytes are printable, 64 distinct characters (twice as many as {@link RandomByteIterator} uses), so
+ * compressors that also use entropy coding, such as gzip, can shrink the random part further, to about 6/8 of
+ * its size.
+ * </p>
+ */
+public class CompressibleByteIterator extends ByteIterator {
+  /**
+   * The size of the chunks, small enough for a repeat to be found by any compressor.
+   */
+  static final int CHUNK_SIZE = 128;
+
+  private final byte[] chunk = new byte[CHUNK_SIZE];
+  private final int randomBytes;
+  private long len;
+  private long off;
+  private int chunkOff;
+
+  /**
+   * @param len the number of bytes to generate
+   * @param compressibility the fraction of the data that a compressor can remove, between 0 and 1
+   */
+  public CompressibleByteIterator(long len, double compressibility) {
+    if (compressibility < 0 || compressibility > 1) {
+      throw new IllegalArgumentException("Compressibility must be between 0 and 1, not " + compressibility);
+    }
+    this.randomBytes = (int)Math.round(CHUNK_SIZE * (1 - compressibility));
+    reset(len);
+  }
+
+  /**
+   * Start over with new data of the given length, so that the iterator can
+   * be reused instead of allocating a new one.
+   */
+  public void reset(long len) {
+    this.len = len;
+    this.off = 0;
+    this.chunkOff = CHUNK_SIZE;
+  }
+
+  private void fillChunk() {
+    int i = 0;
+    while (i < randomBytes) {
+      //ten printable characters from each random long
+      long bits = Utils.random().nextLong();
+      for (int j = 0; j < 10 && i < randomBytes; j++) {
+        chunk[i++] = (byte)((bits & 63) + ' ');
+        bits >>>= 6;
+      }
+    }
+    if (randomBytes == 0) {
+      Arrays.fill(chunk, (byte)' ');
+    } else {
+      for (; i < CHUNK_SIZE; i++) {
+        chunk[i] = chunk[i - randomBytes];
+      }
+    }
+    chunkOff = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  @Override
+  public byte nextByte() {
+    if (chunkOff == CHUNK_SIZE) {
+      fillChunk();
+    }
+    off++;
+    return chunk[chunkOff++];
+  }
+
+  @Override
+  public int nextBuf(byte[] buffer, int bufferOffset) {
+    while (bufferOffset < buffer.length && off < len) {
+      if (chunkOff == CHUNK_SIZE) {
+        fillChunk();
+      }
+      int n = (int)Math.min(Math.min(CHUNK_SIZE - chunkOff, buffer.length - bufferOffset), len - off);
+      System.arraycopy(chunk, chunkOff, buffer, bufferOffset, n);
+      chunkOff += n;
+      off += n;
+      bufferOffset += n;
+    }
+    return bufferOffset;
+  }
+
+  @Override
+  public void writeTo(ByteBuffer buf) {
+    if (buf.remaining() < bytesLeft()) {
+      throw new BufferOverflowException();
+    }
+    while (off < len) {
+      if (chunkOff == CHUNK_SIZE) {
+        fillChunk();
+      }
+      int n = (int)Math.min(CHUNK_SIZE - chunkOff, len - off);
+      buf.put(chunk, chunkOff, n);
+      chunkOff += n;
+      off += n;
+    }
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+}
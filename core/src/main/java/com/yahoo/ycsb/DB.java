@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -126,6 +127,77 @@ public abstract class DB
 	 */
 	public abstract int insert(String table, String key, HashMap<String,ByteIterator> values);
 
+	/**
+	 * Insert a record in the database, and run a task once the insert has completed, whether it succeeded or not.
+	 * This implementation inserts the record and runs the task before returning; DBs that return as soon as the
+	 * insert is submitted override it to run the task on completion, possibly from another thread.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param oncomplete The task to run once the insert has completed
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, Runnable oncomplete)
+	{
+		try
+		{
+			return insert(table,key,values);
+		}
+		finally
+		{
+			oncomplete.run();
+		}
+	}
+
+	/**
+	 * Insert a batch of records in the database. The i-th key is inserted with the i-th HashMap of field/value
+	 * pairs. This implementation inserts the records one at a time; override it if the database can apply a batch
+	 * in fewer round trips.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values The field/value pairs to insert, one HashMap per key
+	 * @return Zero on success, otherwise the first non-zero error code returned for a record in the batch.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int r=insert(table,keys.get(i),values.get(i));
+			if (res==0)
+			{
+				res=r;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Update a batch of records in the database. The i-th key is updated with the i-th HashMap of field/value
+	 * pairs. This implementation updates the records one at a time; override it if the database can apply a batch
+	 * in fewer round trips.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values The field/value pairs to update, one HashMap per key
+	 * @return Zero on success, otherwise the first non-zero error code returned for a record in the batch.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int r=update(table,keys.get(i),values.get(i));
+			if (res==0)
+			{
+				res=r;
+			}
+		}
+		return res;
+	}
+
 	/**
 	 * Delete a record from the database. 
 	 *
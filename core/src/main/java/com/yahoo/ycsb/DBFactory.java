@@ -48,5 +48,56 @@ public class DBFactory
 
 	 return new DBWrapper(ret);
       }
+
+      /**
+       * Return true if the specified DB class is an {@link AsyncDB}.
+       */
+      public static boolean isAsyncDB(String dbname) throws UnknownDBException
+      {
+	 try
+	 {
+	    return AsyncDB.class.isAssignableFrom(DBFactory.class.getClassLoader().loadClass(dbname));
+	 }
+	 catch (ClassNotFoundException e)
+	 {
+	    throw new UnknownDBException(e);
+	 }
+      }
+
+      /**
+       * Create an asynchronous DB layer. If the specified class is a synchronous {@link DB}, it is run
+       * through an {@link AsyncDBAdapter}.
+       */
+      @SuppressWarnings("unchecked")
+	public static AsyncDB newAsyncDB(String dbname, Properties properties) throws UnknownDBException
+      {
+	 ClassLoader classLoader = DBFactory.class.getClassLoader();
+
+	 AsyncDB ret=null;
+
+	 try 
+	 {
+	    Class dbclass = classLoader.loadClass(dbname);
+
+	    Object db=dbclass.newInstance();
+	    if (db instanceof AsyncDB)
+	    {
+	       ret=(AsyncDB)db;
+	    }
+	    else
+	    {
+	       ret=new AsyncDBAdapter((DB)db);
+	    }
+	 }
+	 catch (Exception e) 
+	 {  
+	    e.printStackTrace();
+	    return null;
+	 }
+	 
+	 ret.setProperties(properties);
+
+	 return new AsyncDBWrapper(ret);
+      }
       
 }
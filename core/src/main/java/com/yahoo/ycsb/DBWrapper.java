@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -74,7 +75,30 @@ public class DBWrapper extends DB implements AvroDBClient
     long st=System.nanoTime();
 		_db.cleanup();
     long en=System.nanoTime();
-    _measurements.measure("CLEANUP", (int)((en-st)/1000));
+    measure("CLEANUP",0,st,en);
+	}
+
+	/**
+	 * Record the latency of an operation. If the operation was scheduled by the throttle, its latency from the
+	 * intended start time is recorded as well (when enabled, see {@link Measurements#MEASUREMENT_INTERVAL}).
+	 */
+	void measure(String op, long intendedst, long st, long en)
+	{
+		measure(_measurements,op,intendedst,st,en);
+	}
+
+	/**
+	 * Record the latency of one operation, both from when it was issued and from when it was scheduled to start.
+	 */
+	static void measure(Measurements measurements, String op, long intendedst, long st, long en)
+	{
+		measurements.measure(op,(int)((en-st)/1000));
+		if ( (intendedst==0) || (intendedst>st) )
+		{
+			//not scheduled, or issued ahead of schedule
+			intendedst=st;
+		}
+		measurements.measureIntended(op,(int)((en-intendedst)/1000));
 	}
 
 	/**
@@ -88,10 +112,11 @@ public class DBWrapper extends DB implements AvroDBClient
 	 */
 	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("READ",(int)((en-st)/1000));
+		measure("READ",ist,st,en);
 		_measurements.reportReturnCode("READ",res);
 		return res;
 	}
@@ -108,10 +133,11 @@ public class DBWrapper extends DB implements AvroDBClient
 	 */
 	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("SCAN",(int)((en-st)/1000));
+		measure("SCAN",ist,st,en);
 		_measurements.reportReturnCode("SCAN",res);
 		return res;
 	}
@@ -127,10 +153,11 @@ public class DBWrapper extends DB implements AvroDBClient
 	 */
 	public int update(String table, String key, HashMap<String,ByteIterator> values)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("UPDATE",(int)((en-st)/1000));
+		measure("UPDATE",ist,st,en);
 		_measurements.reportReturnCode("UPDATE",res);
 		return res;
 	}
@@ -146,14 +173,78 @@ public class DBWrapper extends DB implements AvroDBClient
 	 */
 	public int insert(String table, String key, HashMap<String,ByteIterator> values)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("INSERT",(int)((en-st)/1000));
+		measure("INSERT",ist,st,en);
 		_measurements.reportReturnCode("INSERT",res);
 		return res;
 	}
 
+	/**
+	 * Record a batch of n records. The batch latency is recorded once under "BATCH-"+op, and the latency amortized
+	 * over the batch is recorded n times under op, so that per-record latencies and counts stay comparable with
+	 * unbatched runs.
+	 */
+	void measureBatch(String op, int n, int res, long intendedst, long st, long en)
+	{
+		measure("BATCH-"+op,intendedst,st,en);
+		_measurements.reportReturnCode("BATCH-"+op,res);
+		if (n==0)
+		{
+			return;
+		}
+		if ( (intendedst==0) || (intendedst>st) )
+		{
+			intendedst=st;
+		}
+		int latency=(int)((en-st)/1000/n);
+		int intendedlatency=(int)((en-intendedst)/1000/n);
+		for (int i=0; i<n; i++)
+		{
+			_measurements.measure(op,latency);
+			_measurements.measureIntended(op,intendedlatency);
+			_measurements.reportReturnCode(op,res);
+		}
+	}
+
+	/**
+	 * Insert a batch of records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values The field/value pairs to insert, one HashMap per key
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.batchInsert(table,keys,values);
+		long en=System.nanoTime();
+		measureBatch("INSERT",keys.size(),res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Update a batch of records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values The field/value pairs to update, one HashMap per key
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.batchUpdate(table,keys,values);
+		long en=System.nanoTime();
+		measureBatch("UPDATE",keys.size(),res,ist,st,en);
+		return res;
+	}
+
 	/**
 	 * Delete a record from the database.
 	 *
@@ -163,10 +254,11 @@ public class DBWrapper extends DB implements AvroDBClient
 	 */
 	public int delete(String table, String key)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.delete(table,key);
 		long en=System.nanoTime();
-		_measurements.measure("DELETE",(int)((en-st)/1000));
+		measure("DELETE",ist,st,en);
 		_measurements.reportReturnCode("DELETE",res);
 		return res;
 	}
@@ -176,10 +268,11 @@ public class DBWrapper extends DB implements AvroDBClient
   public int readAvro(String table, String key, Set<String> fields, HashMap<String, SpecificRecord> result) {
     // It's an error to call this with a _db that doesn't implement AvroDBClient.
     AvroDBClient adb = (AvroDBClient)_db;
+    long ist=_measurements.getIntendedStartTimeNs();
     long st=System.nanoTime();
     int res=adb.readAvro(table,key,fields,result);
     long en=System.nanoTime();
-    _measurements.measure("AVROREAD",(int)((en-st)/1000));
+    measure("AVROREAD",ist,st,en);
     _measurements.reportReturnCode("AVROREAD",res);
     return res;
   }
@@ -188,10 +281,11 @@ public class DBWrapper extends DB implements AvroDBClient
   public int updateAvro(String table, String key, HashMap<String, SpecificRecord> values) {
     // It's an error to call this with a _db that doesn't implement AvroDBClient.
     AvroDBClient adb = (AvroDBClient)_db;
+    long ist=_measurements.getIntendedStartTimeNs();
     long st=System.nanoTime();
     int res=adb.updateAvro(table,key,values);
     long en=System.nanoTime();
-    _measurements.measure("AVROUPDATE",(int)((en-st)/1000));
+    measure("AVROUPDATE",ist,st,en);
     _measurements.reportReturnCode("AVROUPDATE",res);
     return res;
   }
@@ -200,10 +294,11 @@ public class DBWrapper extends DB implements AvroDBClient
   public int insertAvro(String table, String key, HashMap<String, SpecificRecord> values) {
     // It's an error to call this with a _db that doesn't implement AvroDBClient.
     AvroDBClient adb = (AvroDBClient)_db;
+    long ist=_measurements.getIntendedStartTimeNs();
     long st=System.nanoTime();
     int res=adb.insertAvro(table,key,values);
     long en=System.nanoTime();
-    _measurements.measure("AVROINSERT",(int)((en-st)/1000));
+    measure("AVROINSERT",ist,st,en);
     _measurements.reportReturnCode("AVROINSERT",res);
     return res;
   }
@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.IntervalHistogramLog;
+import com.yahoo.ycsb.measurements.MeasurementsMerger;
+import com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter;
+
+/**
+ * Runs the load phase in several local worker JVMs (see {@link Client#PROCESSES_PROPERTY}). The records to insert
+ * are split into one contiguous range of insert keys per worker, passed to it as "insertstart" and
+ * "insertcount", so the workers insert disjoint sets of keys. Each worker runs "threadcount" threads and an
+ * equal share of the "target" throughput, and records hdrhistogram measurements, which are merged into one
+ * export when all the workers are done.
+ */
+class LoadCoordinator
+{
+	Properties _props;
+	int _processes;
+	boolean _status;
+	String _label;
+
+	/**
+	 * @param props the properties of the load phase
+	 * @param processes the number of worker JVMs to run
+	 * @param status true if the workers should report their status
+	 * @param label the label of the status reports
+	 */
+	LoadCoordinator(Properties props, int processes, boolean status, String label)
+	{
+		_props=props;
+		_processes=processes;
+		_status=status;
+		_label=label;
+	}
+
+	/**
+	 * Run the workers, wait for them to finish, and export their merged measurements.
+	 *
+	 * @return the exit code for the client: 0 on success, -1 if a worker failed
+	 */
+	int run()
+	{
+		long insertstart=Long.parseLong(_props.getProperty(Workload.INSERT_START_PROPERTY,Workload.INSERT_START_PROPERTY_DEFAULT));
+		long insertcount;
+		if (_props.containsKey(Client.INSERT_COUNT_PROPERTY))
+		{
+			insertcount=Long.parseLong(_props.getProperty(Client.INSERT_COUNT_PROPERTY));
+		}
+		else
+		{
+			insertcount=Long.parseLong(_props.getProperty(Client.RECORD_COUNT_PROPERTY,"0"));
+		}
+		double target=Double.parseDouble(_props.getProperty("target","0"));
+
+		final List<Process> workers=new ArrayList<Process>();
+		List<Thread> pumps=new ArrayList<Thread>();
+		List<File> results=new ArrayList<File>();
+
+		//do not leave workers behind if the coordinator is stopped
+		Runtime.getRuntime().addShutdownHook(new Thread()
+		{
+			public void run()
+			{
+				for (Process worker : workers)
+				{
+					worker.destroy();
+				}
+			}
+		});
+
+		long st=System.currentTimeMillis();
+		try
+		{
+			for (int i=0; i<_processes; i++)
+			{
+				long start=insertstart+insertcount*i/_processes;
+				long end=insertstart+insertcount*(i+1)/_processes;
+
+				File result=File.createTempFile("ycsb-worker"+i+"-",".results");
+				result.deleteOnExit();
+				results.add(result);
+
+				Properties workerprops=new Properties();
+				for (Enumeration e=_props.propertyNames(); e.hasMoreElements(); )
+				{
+					String prop=(String)e.nextElement();
+					workerprops.setProperty(prop,_props.getProperty(prop));
+				}
+				workerprops.setProperty(Client.PROCESSES_PROPERTY,"1");
+				workerprops.setProperty(Workload.INSERT_START_PROPERTY,Long.toString(start));
+				workerprops.setProperty(Client.INSERT_COUNT_PROPERTY,Long.toString(end-start));
+				if (target>0)
+				{
+					workerprops.setProperty("target",Integer.toString((int)Math.max(1,target/_processes)));
+				}
+				workerprops.setProperty("measurementtype","hdrhistogram");
+				workerprops.setProperty("exporter",MergeableMeasurementsExporter.class.getName());
+				workerprops.setProperty("exportfile",result.getAbsolutePath());
+				String intervallog=_props.getProperty(IntervalHistogramLog.INTERVAL_LOG);
+				if (intervallog!=null)
+				{
+					//one log per worker, they cannot share a file
+					workerprops.setProperty(IntervalHistogramLog.INTERVAL_LOG,intervallog+"."+i);
+				}
+				String statusfile=_props.getProperty(Client.STATUS_FILE_PROPERTY);
+				if (statusfile!=null)
+				{
+					workerprops.setProperty(Client.STATUS_FILE_PROPERTY,statusfile+"."+i);
+				}
+				String port=_props.getProperty(Telemetry.TELEMETRY_HTTP_PORT);
+				if ( (port!=null) && (Integer.parseInt(port)!=0) )
+				{
+					//nor a port, so each worker serves its metrics on its own
+					workerprops.setProperty(Telemetry.TELEMETRY_HTTP_PORT,Integer.toString(Integer.parseInt(port)+i));
+				}
+
+				File propfile=File.createTempFile("ycsb-worker"+i+"-",".properties");
+				propfile.deleteOnExit();
+				FileOutputStream out=new FileOutputStream(propfile);
+				try
+				{
+					workerprops.store(out,"YCSB load worker "+i+" of "+_processes);
+				}
+				finally
+				{
+					out.close();
+				}
+
+				List<String> command=new ArrayList<String>();
+				command.add(System.getProperty("java.home")+File.separator+"bin"+File.separator+"java");
+				command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(Client.class.getName());
+				command.add("-load");
+				command.add("-P");
+				command.add(propfile.getAbsolutePath());
+				if (_status)
+				{
+					command.add("-s");
+				}
+				if (_label.length()>0)
+				{
+					command.add("-l");
+					command.add(_label);
+				}
+
+				System.err.println("Starting worker "+i+" for keys "+start+" to "+(end-1));
+				ProcessBuilder builder=new ProcessBuilder(command);
+				builder.redirectErrorStream(true);
+				Process worker=builder.start();
+				workers.add(worker);
+
+				Thread pump=pump(worker.getInputStream(),"[worker "+i+"] ");
+				pump.start();
+				pumps.add(pump);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not start load workers: "+e.getMessage());
+			return -1;
+		}
+
+		boolean failed=false;
+		for (int i=0; i<workers.size(); i++)
+		{
+			try
+			{
+				int exit=workers.get(i).waitFor();
+				pumps.get(i).join();
+				if (exit!=0)
+				{
+					System.err.println("Worker "+i+" exited with code "+exit);
+					failed=true;
+				}
+			}
+			catch (InterruptedException e)
+			{
+				failed=true;
+			}
+		}
+		long en=System.currentTimeMillis();
+
+		MeasurementsMerger merger=MergeResults.newMerger(_props);
+
+		for (int i=0; i<results.size(); i++)
+		{
+			File result=results.get(i);
+			if (result.length()==0)
+			{
+				System.err.println("Worker "+i+" did not export any measurements");
+				failed=true;
+				continue;
+			}
+			try
+			{
+				FileInputStream in=new FileInputStream(result);
+				try
+				{
+					merger.merge(in);
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not read the measurements of worker "+i+": "+e.getMessage());
+				failed=true;
+			}
+		}
+
+		System.err.println("All "+_processes+" workers done in "+(en-st)+" ms");
+
+		try
+		{
+			Client.exportMeasurements(_props,(int)merger.getOperations(),merger.getRunTime());
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not export measurements, error: " + e.getMessage());
+			e.printStackTrace();
+			return -1;
+		}
+
+		return failed ? -1 : 0;
+	}
+
+	/**
+	 * Start copying the output of a worker to standard error, one prefixed line at a time.
+	 */
+	static Thread pump(final InputStream in, final String prefix)
+	{
+		Thread t=new Thread()
+		{
+			public void run()
+			{
+				BufferedReader reader=new BufferedReader(new InputStreamReader(in));
+				try
+				{
+					String line;
+					while ((line=reader.readLine())!=null)
+					{
+						System.err.println(prefix+line);
+					}
+				}
+				catch (IOException e)
+				{
+					//the worker is gone
+				}
+			}
+		};
+		t.setDaemon(true);
+		return t;
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.MeasurementsMerger;
+
+/**
+ * Merges the results of several clients, each exported with
+ * {@link com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter}, into one set of results. Latency
+ * histograms are added up, so the merged percentiles are those of all the operations of all the clients. The
+ * clients are assumed to have run at the same time, so the merged throughput is the total number of operations
+ * over the longest run time. The merged results are exported like those of a client, using the "exporter" and
+ * "exportfile" properties.
+ */
+public class MergeResults
+{
+	/**
+	 * Set up the measurements of this JVM to receive merged results, and return a merger into them. The
+	 * measurements use the given properties, except that their type is always hdrhistogram.
+	 */
+	static MeasurementsMerger newMerger(Properties props)
+	{
+		Properties mergeprops=new Properties();
+		for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+		{
+			String prop=(String)e.nextElement();
+			mergeprops.setProperty(prop,props.getProperty(prop));
+		}
+		mergeprops.setProperty("measurementtype","hdrhistogram");
+		Measurements.setProperties(mergeprops);
+		return new MeasurementsMerger(Measurements.getMeasurements());
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.MergeResults [options] resultfile...");
+		System.out.println("Options:");
+		System.out.println("  -P propertyfile: load properties from the given file. Multiple files can");
+		System.out.println("                   be specified, and will be processed in the order specified");
+		System.out.println("  -p name=value:  specify a property, e.g. exporter, exportfile or");
+		System.out.println("                  hdrhistogram.percentiles; overrides any values in the propertyfile");
+		System.out.println("");
+		System.out.println("Each result file must have been written by a client run with");
+		System.out.println("  exporter=com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter");
+		System.out.println("and measurementtype hdrhistogram (exact) or histogram (1 ms resolution).");
+	}
+
+	public static void main(String[] args)
+	{
+		Properties props=new Properties();
+		Properties fileprops=new Properties();
+		List<String> files=new ArrayList<String>();
+
+		int argindex=0;
+		while (argindex<args.length)
+		{
+			if (args[argindex].compareTo("-P")==0)
+			{
+				argindex++;
+				if (argindex>=args.length)
+				{
+					usageMessage();
+					System.exit(0);
+				}
+				try
+				{
+					FileInputStream in=new FileInputStream(args[argindex]);
+					try
+					{
+						fileprops.load(in);
+					}
+					finally
+					{
+						in.close();
+					}
+				}
+				catch (IOException e)
+				{
+					System.out.println(e.getMessage());
+					System.exit(0);
+				}
+				argindex++;
+			}
+			else if (args[argindex].compareTo("-p")==0)
+			{
+				argindex++;
+				if (argindex>=args.length)
+				{
+					usageMessage();
+					System.exit(0);
+				}
+				int eq=args[argindex].indexOf('=');
+				if (eq<0)
+				{
+					usageMessage();
+					System.exit(0);
+				}
+				props.setProperty(args[argindex].substring(0,eq),args[argindex].substring(eq+1));
+				argindex++;
+			}
+			else if (args[argindex].startsWith("-"))
+			{
+				System.out.println("Unknown option "+args[argindex]);
+				usageMessage();
+				System.exit(0);
+			}
+			else
+			{
+				files.add(args[argindex]);
+				argindex++;
+			}
+		}
+
+		if (files.isEmpty())
+		{
+			usageMessage();
+			System.exit(0);
+		}
+
+		//overwrite file properties with properties from the command line
+		for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+		{
+			String prop=(String)e.nextElement();
+			fileprops.setProperty(prop,props.getProperty(prop));
+		}
+		props=fileprops;
+
+		MeasurementsMerger merger=newMerger(props);
+
+		for (String file : files)
+		{
+			try
+			{
+				FileInputStream in=new FileInputStream(file);
+				try
+				{
+					merger.merge(in);
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not merge "+file+": "+e.getMessage());
+				System.exit(-1);
+			}
+		}
+
+		System.err.println("Merged "+files.size()+" results: "+merger.getOperations()+" operations in "+merger.getRunTime()+" ms");
+
+		try
+		{
+			Client.exportMeasurements(props,(int)merger.getOperations(),merger.getRunTime());
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not export measurements, error: " + e.getMessage());
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+}
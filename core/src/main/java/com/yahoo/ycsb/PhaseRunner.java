@@ -0,0 +1,570 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.PrefixedMeasurementsExporter;
+import com.yahoo.ycsb.throttle.ArrivalScheduler;
+
+/**
+ * Runs a schedule of phases back to back in one client (see {@link Client#SCHEDULE_PROPERTY}), so that the JVM,
+ * the workload and the DB connections are only set up once. The schedule is a properties file such as:
+ *
+ * <pre>
+ * phases=load,readmostly,updateheavy
+ * phase.load.type=load
+ * phase.load.threadcount=16
+ * phase.readmostly.readproportion=0.95
+ * phase.readmostly.updateproportion=0.05
+ * phase.readmostly.target=10000
+ * phase.readmostly.maxexecutiontime=300
+ * phase.updateheavy.readproportion=0.5
+ * phase.updateheavy.updateproportion=0.5
+ * phase.updateheavy.operationcount=1000000
+ * </pre>
+ *
+ * Each phase runs with the properties of the client, overridden by the "phase.&lt;name&gt;." properties of the
+ * phase. A phase of type "load" inserts records like -load, any other runs transactions like -t. The workload is
+ * initialized once, and prepared for each phase with {@link Workload#initPhase(Properties)}. The DBs are
+ * initialized once and shared by the threads of all phases, so properties of the DB, the measurements and the
+ * export apply to the whole schedule. The measurements of each phase are exported when it ends, with the name
+ * of the phase and a colon in front of each metric, e.g. "readmostly:READ".
+ */
+class PhaseRunner
+{
+	/**
+	 * The names of the phases in the schedule, comma separated, in the order to run them in.
+	 */
+	static final String PHASES="phases";
+
+	/**
+	 * The prefix of the properties of a phase, followed by the name of the phase and a period.
+	 */
+	static final String PHASE_PREFIX="phase.";
+
+	/**
+	 * The type of a phase: "load" to insert records, or "run" (the default) to do transactions.
+	 */
+	static final String TYPE="type";
+
+	/**
+	 * What a phase did.
+	 */
+	static class Result
+	{
+		/**
+		 * The number of operations measured, i.e. done after the warmup.
+		 */
+		int operations;
+
+		/**
+		 * The time from the end of the warmup to the end of the phase, in milliseconds.
+		 */
+		long runtime;
+
+		/**
+		 * The number of operations the throttle missed, or -1 if the phase was not throttled.
+		 */
+		long missed=-1;
+
+		Result(int operations, long runtime)
+		{
+			this.operations=operations;
+			this.runtime=runtime;
+		}
+	}
+
+	Properties _props;
+	boolean _status;
+	String _label;
+
+	Workload _workload;
+	Measurements _measurements;
+	boolean _async;
+	PrintStream _json;
+	long _statusinterval;
+	Telemetry _telemetry;
+	MeasurementsExporter _exporter;
+	int _exitcode;
+
+	/**
+	 * The DBs shared by the threads of the phases: {@link DB}s, or {@link AsyncDB}s if any phase runs
+	 * asynchronously. Grows with the threadcount of the phases.
+	 */
+	List<Object> _dbs=new ArrayList<Object>();
+
+	/**
+	 * @param props the properties of the client, including the schedule file
+	 * @param status true to report the status of each phase
+	 * @param label the label of the status reports
+	 */
+	PhaseRunner(Properties props, boolean status, String label)
+	{
+		_props=props;
+		_status=status;
+		_label=label;
+	}
+
+	/**
+	 * Read a schedule.
+	 *
+	 * @param props the properties that each phase starts from
+	 * @param schedule the schedule, in properties file format
+	 * @return the properties of each phase, by name, in the order to run them in
+	 * @throws IOException if the schedule could not be read
+	 * @throws IllegalArgumentException if the schedule does not list any phase, or lists one twice
+	 */
+	static Map<String,Properties> readSchedule(Properties props, InputStream schedule) throws IOException
+	{
+		Properties phases=new Properties();
+		phases.load(schedule);
+		String names=phases.getProperty(PHASES,"").trim();
+		if (names.length()==0)
+		{
+			throw new IllegalArgumentException("The schedule does not list any "+PHASES);
+		}
+
+		Map<String,Properties> ret=new LinkedHashMap<String,Properties>();
+		for (String name : names.split(","))
+		{
+			name=name.trim();
+			if (ret.containsKey(name))
+			{
+				throw new IllegalArgumentException("Phase \""+name+"\" is listed twice");
+			}
+			Properties phase=copy(props);
+			String prefix=PHASE_PREFIX+name+".";
+			for (Enumeration e=phases.propertyNames(); e.hasMoreElements(); )
+			{
+				String prop=(String)e.nextElement();
+				if (prop.startsWith(prefix))
+				{
+					phase.setProperty(prop.substring(prefix.length()),phases.getProperty(prop));
+				}
+			}
+			ret.put(name,phase);
+		}
+		return ret;
+	}
+
+	static Properties copy(Properties props)
+	{
+		Properties ret=new Properties();
+		for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+		{
+			String prop=(String)e.nextElement();
+			ret.setProperty(prop,props.getProperty(prop));
+		}
+		return ret;
+	}
+
+	/**
+	 * Run the phases of the schedule, exporting the measurements of each one when it ends.
+	 *
+	 * @return the exit code for the client
+	 */
+	int run()
+	{
+		Map<String,Properties> phases;
+		String schedule=_props.getProperty(Client.SCHEDULE_PROPERTY);
+		try
+		{
+			InputStream in=new FileInputStream(schedule);
+			try
+			{
+				phases=readSchedule(_props,in);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not read schedule "+schedule+": "+e.getMessage());
+			return 0;
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.out.println("Bad schedule "+schedule+": "+e.getMessage());
+			return 0;
+		}
+
+		if (!setUp(phases.values()))
+		{
+			return 0;
+		}
+		try
+		{
+			for (Map.Entry<String,Properties> phase : phases.entrySet())
+			{
+				Result result=runPhase(phase.getKey(),phase.getValue());
+				if (result==null)
+				{
+					return 0;
+				}
+				exportPhase(phase.getKey(),result);
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			_exitcode=-1;
+		}
+		finally
+		{
+			tearDown();
+		}
+		return _exitcode;
+	}
+
+	/**
+	 * Load and initialize the workload, and start the status reports, telemetry and export shared by the
+	 * phases.
+	 *
+	 * @param phases the properties of all the phases to run, to size the workload for the busiest one
+	 * @return false if something could not be set up, after printing why
+	 */
+	boolean setUp(Collection<Properties> phases)
+	{
+		int maxthreads=1;
+		int maxinflight=1;
+		for (Properties phase : phases)
+		{
+			maxthreads=Math.max(maxthreads,Integer.parseInt(phase.getProperty("threadcount","1")));
+			maxinflight=Math.max(maxinflight,Integer.parseInt(phase.getProperty(Client.INFLIGHT_PROPERTY,Client.INFLIGHT_PROPERTY_DEFAULT)));
+		}
+		Properties initprops=copy(_props);
+		initprops.setProperty("threadcount",Integer.toString(maxthreads));
+		initprops.setProperty(Client.INFLIGHT_PROPERTY,Integer.toString(maxinflight));
+
+		String dbname=_props.getProperty("db","com.yahoo.ycsb.BasicDB");
+		try
+		{
+			_async=(maxinflight>1) || DBFactory.isAsyncDB(dbname);
+		}
+		catch (UnknownDBException e)
+		{
+			System.out.println("Unknown DB "+dbname);
+			return false;
+		}
+
+		System.err.println("Loading workload...");
+
+		Measurements.setProperties(_props);
+		_measurements=Measurements.getMeasurements();
+
+		try
+		{
+			_workload=(Workload)Client.class.getClassLoader().loadClass(_props.getProperty(Client.WORKLOAD_PROPERTY)).newInstance();
+			_workload.init(initprops);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return false;
+		}
+
+		_statusinterval=Long.parseLong(_props.getProperty(Client.STATUS_INTERVAL_PROPERTY,Client.STATUS_INTERVAL_PROPERTY_DEFAULT));
+		if (_status)
+		{
+			if (_statusinterval<100)
+			{
+				System.out.println(Client.STATUS_INTERVAL_PROPERTY+" must be at least 100 ms");
+				return false;
+			}
+			_json=Client.openJsonStatus(_props);
+		}
+
+		try
+		{
+			if (Telemetry.isEnabled(_props))
+			{
+				_telemetry=new Telemetry(_props,_measurements,new Vector<ClientThread>());
+				_telemetry.start();
+			}
+			_exporter=Client.newExporter(_props);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			tearDown();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Stop the telemetry, close the export, and clean up the DBs and the workload.
+	 */
+	void tearDown()
+	{
+		if (_telemetry!=null)
+		{
+			_telemetry.stop();
+		}
+		if (_exporter!=null)
+		{
+			try
+			{
+				_exporter.close();
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not export measurements, error: " + e.getMessage());
+				_exitcode=-1;
+			}
+		}
+		cleanupDBs();
+		try
+		{
+			_workload.cleanup();
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+	}
+
+	/**
+	 * Export the measurements of the phase that just ran, with the name of the phase in front of each metric.
+	 */
+	void exportPhase(String name, Result result) throws IOException
+	{
+		Client.exportMeasurements(new PrefixedMeasurementsExporter(_exporter,name+":"),result.operations,result.runtime,result.missed);
+	}
+
+	/**
+	 * Run one phase, and wait for it to end. Its measurements are kept until the next phase starts.
+	 *
+	 * @param name the name of the phase, for status reports
+	 * @param props the properties of the phase
+	 * @return the result of the phase, or null if the DBs could not be set up
+	 */
+	Result runPhase(String name, Properties props) throws DBException, WorkloadException
+	{
+		System.err.println("Starting phase "+name+".");
+		_workload.initPhase(props);
+		_measurements.reset();
+
+		boolean dotransactions=props.getProperty(TYPE,"run").compareTo("load")!=0;
+		int threadcount=Integer.parseInt(props.getProperty("threadcount","1"));
+		int target=Integer.parseInt(props.getProperty("target","0"));
+		int inflight=Math.max(1,Integer.parseInt(props.getProperty(Client.INFLIGHT_PROPERTY,Client.INFLIGHT_PROPERTY_DEFAULT)));
+		long maxexecutiontime=Long.parseLong(props.getProperty(Client.MAX_EXECUTION_TIME,"0"));
+		boolean virtual=props.getProperty(Client.THREAD_MODEL_PROPERTY,Client.THREAD_MODEL_PROPERTY_DEFAULT).compareTo("virtual")==0;
+
+		int opcount;
+		if (dotransactions)
+		{
+			opcount=Integer.parseInt(props.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+		}
+		else
+		{
+			opcount=Integer.parseInt(props.getProperty(Client.INSERT_COUNT_PROPERTY,props.getProperty(Client.RECORD_COUNT_PROPERTY,"0")));
+		}
+
+		if (!addDBs(threadcount))
+		{
+			return null;
+		}
+
+		Warmup warmup=new Warmup(_measurements,
+			1000*Long.parseLong(props.getProperty(Client.WARMUP_TIME_PROPERTY,Client.WARMUP_TIME_PROPERTY_DEFAULT)),
+			Long.parseLong(props.getProperty(Client.WARMUP_OPS_PROPERTY,Client.WARMUP_OPS_PROPERTY_DEFAULT)));
+
+		Vector<ClientThread> clients=new Vector<ClientThread>();
+		Vector<Thread> threads=new Vector<Thread>();
+		ArrivalScheduler[] schedulers=ArrivalScheduler.newSchedulers(props,target,threadcount);
+		for (int threadid=0; threadid<threadcount; threadid++)
+		{
+
+			ClientThread client;
+			if (_async)
+			{
+				client=new AsyncClientThread((AsyncDB)_dbs.get(threadid),inflight,dotransactions,_workload,threadid,threadcount,props,opcount/threadcount,schedulers[threadid],warmup);
+			}
+			else
+			{
+				client=new ClientThread((DB)_dbs.get(threadid),dotransactions,_workload,threadid,threadcount,props,opcount/threadcount,schedulers[threadid],warmup);
+			}
+			client._shareddb=true;
+
+			Thread t=Client.newClientThread(client,virtual);
+			if (t==null)
+			{
+				System.out.println("Virtual threads are not supported by this JVM, use "+Client.THREAD_MODEL_PROPERTY+"=platform");
+				return null;
+			}
+			clients.add(client);
+			threads.add(t);
+		}
+
+		StatusThread statusthread=null;
+		if (_status)
+		{
+			boolean standardstatus=props.getProperty("measurementtype","").compareTo("timeseries")==0;
+			String label=(_label.length()>0) ? _label+" "+name : name;
+			statusthread=new StatusThread(threads,clients,label,standardstatus,_statusinterval,_json);
+			statusthread.start();
+		}
+		if (_telemetry!=null)
+		{
+			_telemetry.setClients(clients);
+		}
+
+		_workload.clearStopRequest();
+		long st=System.currentTimeMillis();
+		warmup.start(st);
+		for (Thread t : threads)
+		{
+			t.start();
+		}
+
+		Thread terminator=null;
+		if (maxexecutiontime>0)
+		{
+			terminator=new TerminatorThread(maxexecutiontime,threads,_workload);
+			terminator.start();
+		}
+
+		for (Thread t : threads)
+		{
+			try
+			{
+				t.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+
+		int opsdone=0;
+		for (ClientThread client : clients)
+		{
+			opsdone+=client.getOpsDone()-client.getWarmupOpsDone();
+		}
+		long en=System.currentTimeMillis();
+
+		warmup.stop();
+		if (warmup.isOver())
+		{
+			st=warmup.getEnd();
+		}
+		else
+		{
+			System.err.println("Phase "+name+" ended before its warmup did, nothing was measured");
+			st=en;
+		}
+
+		if (terminator!=null)
+		{
+			terminator.interrupt();
+		}
+		if (statusthread!=null)
+		{
+			statusthread.interrupt();
+			try
+			{
+				statusthread.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+
+		Result result=new Result(opsdone,en-st);
+		result.missed=ClientThread.getMissed(clients);
+		return result;
+	}
+
+	/**
+	 * Create and initialize DBs until there are enough for the given number of threads.
+	 *
+	 * @return false if a DB could not be created
+	 */
+	boolean addDBs(int threadcount) throws DBException
+	{
+		String dbname=_props.getProperty("db","com.yahoo.ycsb.BasicDB");
+		while (_dbs.size()<threadcount)
+		{
+			try
+			{
+				if (_async)
+				{
+					AsyncDB db=DBFactory.newAsyncDB(dbname,_props);
+					db.init();
+					_dbs.add(db);
+				}
+				else
+				{
+					DB db=DBFactory.newDB(dbname,_props);
+					db.init();
+					_dbs.add(db);
+				}
+			}
+			catch (UnknownDBException e)
+			{
+				System.out.println("Unknown DB "+dbname);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void cleanupDBs()
+	{
+		for (Object db : _dbs)
+		{
+			try
+			{
+				if (db instanceof AsyncDB)
+				{
+					((AsyncDB)db).cleanup();
+				}
+				else
+				{
+					((DB)db).cleanup();
+				}
+			}
+			catch (DBException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+}
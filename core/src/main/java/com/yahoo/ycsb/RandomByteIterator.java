@@ -51,9 +51,18 @@ public class RandomByteIterator extends ByteIterator {
   }
 
   public RandomByteIterator(long len) {
-    this.len = len;
     this.buf = new byte[6];
+    reset(len);
+  }
+
+  /**
+   * Start over with a new random sequence of the given length, so that
+   * the iterator can be reused instead of allocating a new one.
+   */
+  public void reset(long len) {
+    this.len = len;
     this.bufOff = buf.length;
+    this.off = 0;
     fillBytes();
     this.off = 0;
   }
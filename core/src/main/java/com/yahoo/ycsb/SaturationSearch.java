@@ -0,0 +1,333 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.IntervalRecorders;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.PrefixedMeasurementsExporter;
+
+/**
+ * Searches for the highest target throughput that the DB sustains within a latency SLO, in one client (see
+ * {@link Client#SEARCH_PROPERTY}). Each probe is a phase of a {@link PhaseRunner} that holds one target for
+ * search.window seconds. It meets the SLO if its 99th percentile latency is at most search.p99, its error
+ * rate (the share of non-zero return codes) at most search.errorrate, and its throughput within 5% of the
+ * target; otherwise the client, rather than the DB, was queueing operations. The latency is the intended latency
+ * when it is recorded (see {@link com.yahoo.ycsb.measurements.Measurements#MEASUREMENT_INTERVAL}), which counts
+ * the time operations waited behind slow ones, and the operation latency otherwise.
+ *
+ * The search either steps the target up from search.start by search.step until a step misses the SLO (or
+ * search.max is passed), or bisects between 0 and search.max until the bounds are search.resolution apart. The
+ * measurements of each step are exported like those of a phase named "step&lt;n&gt;", along with its target,
+ * p99 latency, error rate and whether it met the SLO, which together trace the throughput versus latency curve.
+ * The highest target that met the SLO is exported as "SEARCH".
+ */
+class SaturationSearch
+{
+	/**
+	 * The first target of a step search, in operations per second.
+	 */
+	public static final String SEARCH_START="search.start";
+
+	public static final String SEARCH_START_DEFAULT="1000";
+
+	/**
+	 * How much a step search raises the target by at each step. Defaults to search.start.
+	 */
+	public static final String SEARCH_STEP="search.step";
+
+	/**
+	 * The highest target to try. Required for a binary search, unlimited for a step search if not set.
+	 */
+	public static final String SEARCH_MAX="search.max";
+
+	/**
+	 * How long each target is held, in seconds.
+	 */
+	public static final String SEARCH_WINDOW="search.window";
+
+	public static final String SEARCH_WINDOW_DEFAULT="30";
+
+	/**
+	 * The highest 99th percentile latency that meets the SLO, in microseconds. Required.
+	 */
+	public static final String SEARCH_P99="search.p99";
+
+	/**
+	 * The highest share of operations with a non-zero return code that meets the SLO.
+	 */
+	public static final String SEARCH_ERROR_RATE="search.errorrate";
+
+	public static final String SEARCH_ERROR_RATE_DEFAULT="0.001";
+
+	/**
+	 * A binary search stops when the highest target known to meet the SLO and the lowest known to miss it are
+	 * this close, in operations per second.
+	 */
+	public static final String SEARCH_RESOLUTION="search.resolution";
+
+	public static final String SEARCH_RESOLUTION_DEFAULT="100";
+
+	/**
+	 * The share of the target that a step must achieve to meet the SLO.
+	 */
+	static final double MIN_THROUGHPUT_RATIO=0.95;
+
+	/**
+	 * What one step measured.
+	 */
+	static class Step
+	{
+		int target;
+		double throughput;
+		long p99;
+		double errorrate;
+		boolean met;
+	}
+
+	Properties _props;
+	PhaseRunner _runner;
+	IntervalRecorders _recorders;
+	int _steps;
+	long _p99;
+	double _errorrate;
+	long _window;
+
+	SaturationSearch(Properties props, boolean status, String label)
+	{
+		_props=props;
+		_runner=new PhaseRunner(props,status,label);
+	}
+
+	/**
+	 * Run the search, and export the result.
+	 *
+	 * @return the exit code for the client
+	 */
+	int run()
+	{
+		String mode=_props.getProperty(Client.SEARCH_PROPERTY);
+		if ( (mode.compareTo("step")!=0) && (mode.compareTo("binary")!=0) )
+		{
+			System.out.println("Unknown search \""+mode+"\", must be step or binary");
+			return 0;
+		}
+		if (_props.getProperty(SEARCH_P99)==null)
+		{
+			System.out.println(SEARCH_P99+" must be set for a search");
+			return 0;
+		}
+		_p99=Long.parseLong(_props.getProperty(SEARCH_P99));
+		_errorrate=Double.parseDouble(_props.getProperty(SEARCH_ERROR_RATE,SEARCH_ERROR_RATE_DEFAULT));
+		_window=Long.parseLong(_props.getProperty(SEARCH_WINDOW,SEARCH_WINDOW_DEFAULT));
+		int start=Integer.parseInt(_props.getProperty(SEARCH_START,SEARCH_START_DEFAULT));
+		int step=Integer.parseInt(_props.getProperty(SEARCH_STEP,Integer.toString(start)));
+		int max=Integer.parseInt(_props.getProperty(SEARCH_MAX,"0"));
+		int resolution=Integer.parseInt(_props.getProperty(SEARCH_RESOLUTION,SEARCH_RESOLUTION_DEFAULT));
+		if ( (_window<=0) || (start<=0) || (step<=0) || (resolution<=0) )
+		{
+			System.out.println(SEARCH_WINDOW+", "+SEARCH_START+", "+SEARCH_STEP+" and "+SEARCH_RESOLUTION+" must be positive");
+			return 0;
+		}
+		if ( (mode.compareTo("binary")==0) && (max<=0) )
+		{
+			System.out.println(SEARCH_MAX+" must be set for a binary search");
+			return 0;
+		}
+
+		if (!_runner.setUp(Collections.singleton(_props)))
+		{
+			return 0;
+		}
+		int exitcode=0;
+		try
+		{
+			_recorders=_runner._measurements.addIntervalRecorders();
+
+			Step best=null;
+			if (mode.compareTo("step")==0)
+			{
+				for (int target=start; (max<=0) || (target<=max); target+=step)
+				{
+					Step s=probe(target);
+					if ( (s==null) || !s.met )
+					{
+						break;
+					}
+					best=s;
+				}
+			}
+			else
+			{
+				int lo=0;
+				int hi=max;
+				while (hi-lo>resolution)
+				{
+					int mid=(lo+hi)/2;
+					Step s=probe(mid);
+					if (s==null)
+					{
+						break;
+					}
+					if (s.met)
+					{
+						best=s;
+						lo=mid;
+					}
+					else
+					{
+						hi=mid;
+					}
+				}
+			}
+
+			MeasurementsExporter exporter=_runner._exporter;
+			if (best==null)
+			{
+				System.err.println("No target met the SLO.");
+				exporter.write("SEARCH","MaxTarget(ops/sec)",0);
+				exporter.write("SEARCH","Throughput(ops/sec)",0.0);
+			}
+			else
+			{
+				System.err.println("The highest target that met the SLO is "+best.target+" ops/sec.");
+				exporter.write("SEARCH","MaxTarget(ops/sec)",best.target);
+				exporter.write("SEARCH","Throughput(ops/sec)",best.throughput);
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			exitcode=-1;
+		}
+		finally
+		{
+			_runner.tearDown();
+		}
+		return (exitcode!=0) ? exitcode : _runner._exitcode;
+	}
+
+	/**
+	 * Hold a target for one window, export what it measured, and check it against the SLO.
+	 *
+	 * @return the step, or null if the DBs could not be set up
+	 */
+	Step probe(int target) throws DBException, WorkloadException, IOException
+	{
+		_steps++;
+		String name="step"+_steps;
+
+		Properties props=PhaseRunner.copy(_props);
+		props.setProperty("target",Integer.toString(target));
+		props.setProperty(Client.OPERATION_COUNT_PROPERTY,"0");
+		props.setProperty(Client.MAX_EXECUTION_TIME,Long.toString(_window));
+		//the latencies of a step come from the interval recorders, which do not leave out a warmup
+		props.remove(Client.WARMUP_TIME_PROPERTY);
+		props.remove(Client.WARMUP_OPS_PROPERTY);
+
+		_recorders.takeWindows();
+		PhaseRunner.Result result=_runner.runPhase(name+" at "+target+" ops/sec",props);
+		if (result==null)
+		{
+			return null;
+		}
+
+		Step step=new Step();
+		step.target=target;
+		step.throughput=(result.runtime>0) ? 1000.0*result.operations/result.runtime : 0;
+		step.p99=getP99(_recorders.takeWindows());
+		step.errorrate=getErrorRate(_runner._measurements.getReturnCodes());
+		step.met=(result.operations>0) && (step.p99<=_p99) && (step.errorrate<=_errorrate)
+			&& (step.throughput>=MIN_THROUGHPUT_RATIO*target);
+
+		MeasurementsExporter exporter=new PrefixedMeasurementsExporter(_runner._exporter,name+":");
+		exporter.write("OVERALL","Target(ops/sec)",target);
+		exporter.write("OVERALL","99thPercentileLatency(us)",(double)step.p99);
+		exporter.write("OVERALL","ErrorRate",step.errorrate);
+		exporter.write("OVERALL","MetSLO",step.met ? 1 : 0);
+		_runner.exportPhase(name,result);
+
+		System.err.println("Step "+_steps+": target "+target+" ops/sec, throughput "+Math.round(step.throughput)
+			+" ops/sec, p99 "+step.p99+" us, error rate "+step.errorrate+(step.met ? ", met the SLO" : ", missed the SLO"));
+		return step;
+	}
+
+	/**
+	 * Return the 99th percentile latency of all operations in a window: their intended latencies if they were
+	 * recorded, their operation latencies otherwise. Batches are left out, their operations are counted one by
+	 * one.
+	 */
+	static long getP99(Map<String,Histogram> windows)
+	{
+		boolean intended=false;
+		for (String name : windows.keySet())
+		{
+			intended|=name.startsWith("Intended-");
+		}
+		Histogram all=null;
+		for (Map.Entry<String,Histogram> entry : windows.entrySet())
+		{
+			String name=entry.getKey();
+			if ( (name.startsWith("Intended-")==intended) && (name.indexOf("BATCH-")<0) )
+			{
+				if (all==null)
+				{
+					all=entry.getValue().copy();
+				}
+				else
+				{
+					all.add(entry.getValue());
+				}
+			}
+		}
+		return (all==null) ? 0 : all.getValueAtPercentile(99);
+	}
+
+	/**
+	 * Return the share of operations with a non-zero return code. Batches are left out, their operations are
+	 * counted one by one.
+	 */
+	static double getErrorRate(Map<String,Map<Integer,Long>> returncodes)
+	{
+		long total=0;
+		long errors=0;
+		for (Map.Entry<String,Map<Integer,Long>> entry : returncodes.entrySet())
+		{
+			if (entry.getKey().indexOf("BATCH-")>=0)
+			{
+				continue;
+			}
+			for (Map.Entry<Integer,Long> code : entry.getValue().entrySet())
+			{
+				total+=code.getValue();
+				if (code.getKey()!=0)
+				{
+					errors+=code.getValue();
+				}
+			}
+		}
+		return (total==0) ? 0 : ((double)errors)/total;
+	}
+}
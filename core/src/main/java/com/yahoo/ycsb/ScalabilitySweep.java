@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.IntervalRecorders;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.PrefixedMeasurementsExporter;
+
+/**
+ * Runs the workload unthrottled at a list of thread counts in one client (see {@link Client#SWEEP_PROPERTY}),
+ * each one for sweep.window seconds, and fits the Universal Scalability Law
+ *
+ * <pre>
+ * X(N) = lambda N / (1 + sigma (N-1) + kappa N (N-1))
+ * </pre>
+ *
+ * to the throughput X(N) at each thread count N. lambda is the throughput of one thread, sigma the share of the
+ * work that is serialized (contention, e.g. on a lock), and kappa the cost of keeping threads coherent
+ * (crosstalk). If kappa is positive, the throughput peaks at sqrt((1-sigma)/kappa) threads and falls beyond.
+ * The DBs are shared by the thread counts, see {@link PhaseRunner}.
+ *
+ * The measurements of each thread count are exported like those of a phase named "threads&lt;n&gt;", along with
+ * the 99th percentile latency of all operations. The coefficients and the predicted peak are exported as "USL".
+ */
+class ScalabilitySweep
+{
+	/**
+	 * How long each thread count runs, in seconds.
+	 */
+	public static final String SWEEP_WINDOW="sweep.window";
+
+	public static final String SWEEP_WINDOW_DEFAULT="30";
+
+	Properties _props;
+	PhaseRunner _runner;
+
+	ScalabilitySweep(Properties props, boolean status, String label)
+	{
+		_props=props;
+		_runner=new PhaseRunner(props,status,label);
+	}
+
+	/**
+	 * Parse a comma separated list of thread counts.
+	 *
+	 * @throws IllegalArgumentException if the list is empty or a thread count is not positive
+	 */
+	static int[] parseThreadCounts(String list)
+	{
+		String[] items=list.split(",");
+		int[] ret=new int[items.length];
+		for (int i=0; i<items.length; i++)
+		{
+			ret[i]=Integer.parseInt(items[i].trim());
+			if (ret[i]<1)
+			{
+				throw new IllegalArgumentException("Thread counts must be positive");
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Run the workload at each thread count, and export the fit.
+	 *
+	 * @return the exit code for the client
+	 */
+	int run()
+	{
+		int[] threadcounts;
+		try
+		{
+			threadcounts=parseThreadCounts(_props.getProperty(Client.SWEEP_PROPERTY));
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.out.println("Bad "+Client.SWEEP_PROPERTY+": "+e.getMessage());
+			return 0;
+		}
+		long window=Long.parseLong(_props.getProperty(SWEEP_WINDOW,SWEEP_WINDOW_DEFAULT));
+		if (window<=0)
+		{
+			System.out.println(SWEEP_WINDOW+" must be positive");
+			return 0;
+		}
+
+		//a thread count may be listed more than once, to repeat its level; the repeats are named threads<n>.2 and so on
+		List<String> names=new ArrayList<String>();
+		List<Properties> levels=new ArrayList<Properties>();
+		Map<Integer,Integer> runs=new HashMap<Integer,Integer>();
+		for (int threadcount : threadcounts)
+		{
+			Integer run=runs.get(threadcount);
+			run=(run==null) ? 1 : run+1;
+			runs.put(threadcount,run);
+
+			Properties props=PhaseRunner.copy(_props);
+			props.setProperty("threadcount",Integer.toString(threadcount));
+			props.setProperty(Client.OPERATION_COUNT_PROPERTY,"0");
+			props.setProperty(Client.MAX_EXECUTION_TIME,Long.toString(window));
+			props.remove("target");
+			//the latencies of a level come from the interval recorders, which do not leave out a warmup
+			props.remove(Client.WARMUP_TIME_PROPERTY);
+			props.remove(Client.WARMUP_OPS_PROPERTY);
+			names.add("threads"+threadcount+((run>1) ? "."+run : ""));
+			levels.add(props);
+		}
+
+		if (!_runner.setUp(levels))
+		{
+			return 0;
+		}
+		int exitcode=0;
+		try
+		{
+			IntervalRecorders recorders=_runner._measurements.addIntervalRecorders();
+			double[] throughputs=new double[threadcounts.length];
+			for (int i=0; i<threadcounts.length; i++)
+			{
+				String name=names.get(i);
+				recorders.takeWindows();
+				PhaseRunner.Result result=_runner.runPhase(name,levels.get(i));
+				if (result==null)
+				{
+					return 0;
+				}
+				throughputs[i]=(result.runtime>0) ? 1000.0*result.operations/result.runtime : 0;
+				long p99=SaturationSearch.getP99(recorders.takeWindows());
+
+				MeasurementsExporter exporter=new PrefixedMeasurementsExporter(_runner._exporter,name+":");
+				exporter.write("OVERALL","Threads",threadcounts[i]);
+				exporter.write("OVERALL","99thPercentileLatency(us)",(double)p99);
+				_runner.exportPhase(name,result);
+
+				System.err.println(threadcounts[i]+" threads: "+Math.round(throughputs[i])+" ops/sec, p99 "+p99+" us");
+			}
+
+			double[] usl=fit(threadcounts,throughputs);
+			if (usl==null)
+			{
+				System.err.println("Need at least three different thread counts with some throughput to fit the Universal Scalability Law.");
+			}
+			else
+			{
+				exportFit(_runner._exporter,usl);
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			exitcode=-1;
+		}
+		finally
+		{
+			_runner.tearDown();
+		}
+		return (exitcode!=0) ? exitcode : _runner._exitcode;
+	}
+
+	/**
+	 * Export the coefficients of a fit, and the peak they predict.
+	 */
+	static void exportFit(MeasurementsExporter exporter, double[] usl) throws IOException
+	{
+		double lambda=usl[0];
+		double sigma=usl[1];
+		double kappa=usl[2];
+		exporter.write("USL","Lambda(ops/sec)",lambda);
+		exporter.write("USL","Sigma",sigma);
+		exporter.write("USL","Kappa",kappa);
+		double peak=getPeakThreads(sigma,kappa);
+		if (peak>0)
+		{
+			exporter.write("USL","PeakThreads",peak);
+			exporter.write("USL","PeakThroughput(ops/sec)",getThroughput(usl,peak));
+			System.err.println("Fit: lambda="+lambda+" ops/sec, sigma="+sigma+", kappa="+kappa
+				+"; throughput peaks at "+Math.round(peak)+" threads, "+Math.round(getThroughput(usl,peak))+" ops/sec");
+		}
+		else
+		{
+			System.err.println("Fit: lambda="+lambda+" ops/sec, sigma="+sigma+", kappa="+kappa
+				+"; no coherency cost, throughput does not peak");
+		}
+	}
+
+	/**
+	 * Fit the Universal Scalability Law by least squares on its linear form
+	 * N/X(N) = 1/lambda + (sigma/lambda) (N-1) + (kappa/lambda) N (N-1), which does not need a measurement at
+	 * one thread.
+	 *
+	 * @param n the thread counts
+	 * @param x the throughput at each thread count
+	 * @return lambda, sigma and kappa, or null if there are fewer than three different thread counts with a
+	 *         positive throughput
+	 */
+	static double[] fit(int[] n, double[] x)
+	{
+		//normal equations a c = b of the regression on 1, N-1 and N(N-1), scaled to similar magnitudes so
+		//that large thread counts do not make them ill-conditioned
+		double[][] a=new double[3][3];
+		double[] b=new double[3];
+		double scale=1;
+		for (int i=0; i<n.length; i++)
+		{
+			scale=Math.max(scale,n[i]);
+		}
+		int distinct=0;
+		for (int i=0; i<n.length; i++)
+		{
+			if (x[i]<=0)
+			{
+				continue;
+			}
+			boolean seen=false;
+			for (int j=0; j<i; j++)
+			{
+				seen|=(n[j]==n[i]) && (x[j]>0);
+			}
+			if (!seen)
+			{
+				distinct++;
+			}
+			double[] row={1,(n[i]-1)/scale,((double)n[i])*(n[i]-1)/(scale*scale)};
+			double y=n[i]/x[i];
+			for (int r=0; r<3; r++)
+			{
+				for (int c=0; c<3; c++)
+				{
+					a[r][c]+=row[r]*row[c];
+				}
+				b[r]+=row[r]*y;
+			}
+		}
+		if (distinct<3)
+		{
+			return null;
+		}
+
+		double[] c=solve(a,b);
+		if ( (c==null) || (c[0]<=0) )
+		{
+			return null;
+		}
+		return new double[] {1/c[0],c[1]/(scale*c[0]),c[2]/(scale*scale*c[0])};
+	}
+
+	/**
+	 * Solve a 3x3 linear system by Cramer's rule.
+	 *
+	 * @return the solution, or null if the system is singular
+	 */
+	static double[] solve(double[][] a, double[] b)
+	{
+		double det=det(a);
+		if (det==0)
+		{
+			return null;
+		}
+		double[] ret=new double[3];
+		for (int i=0; i<3; i++)
+		{
+			double[][] m=new double[3][];
+			for (int r=0; r<3; r++)
+			{
+				m[r]=a[r].clone();
+				m[r][i]=b[r];
+			}
+			ret[i]=det(m)/det;
+		}
+		return ret;
+	}
+
+	static double det(double[][] m)
+	{
+		return m[0][0]*(m[1][1]*m[2][2]-m[1][2]*m[2][1])
+			-m[0][1]*(m[1][0]*m[2][2]-m[1][2]*m[2][0])
+			+m[0][2]*(m[1][0]*m[2][1]-m[1][1]*m[2][0]);
+	}
+
+	/**
+	 * @return the thread count at which the throughput peaks, or 0 if it does not
+	 */
+	static double getPeakThreads(double sigma, double kappa)
+	{
+		if ( (kappa<=0) || (sigma>=1) )
+		{
+			return 0;
+		}
+		return Math.sqrt((1-sigma)/kappa);
+	}
+
+	/**
+	 * @return the throughput predicted by a fit at a thread count
+	 */
+	static double getThroughput(double[] usl, double n)
+	{
+		return usl[0]*n/(1+usl[1]*(n-1)+usl[2]*n*(n-1));
+	}
+}
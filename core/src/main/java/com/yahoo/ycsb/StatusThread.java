@@ -0,0 +1,278 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.Vector;
+
+import org.HdrHistogram.Histogram;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.yahoo.ycsb.measurements.IntervalRecorders;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread to periodically show the status of the experiment, to reassure you that progress is being made.
+ * Status is either a line of human readable text (see {@link Measurements#getSummary()}), or a line of JSON
+ * with the throughput and latency percentiles of each operation over the last interval (see
+ * {@link Client#STATUS_FORMAT_PROPERTY}). Reporting in JSON does not take any lock the clients use: operation
+ * counts are read from the clients, and latencies from wait-free recorders.
+ * 
+ * @author cooperb
+ *
+ */
+class StatusThread extends Thread
+{
+	Vector<Thread> _threads;
+	Vector<ClientThread> _clients;
+	String _label;
+	boolean _standardstatus;
+
+	/**
+	 * The interval for reporting status, in milliseconds.
+	 */
+	long _interval;
+
+	/**
+	 * Where to write JSON status lines, or null to report status as text.
+	 */
+	PrintStream _json;
+
+	/**
+	 * The latencies of each interval, for JSON status.
+	 */
+	IntervalRecorders _windows;
+
+	JsonFactory _jsonfactory=new JsonFactory();
+
+	/**
+	 * @param threads the threads running the clients, the status thread stops when they have all terminated
+	 * @param clients the clients to report on
+	 * @param interval the interval for reporting status, in milliseconds
+	 * @param json where to write JSON status lines, or null to report status as text
+	 */
+	public StatusThread(Vector<Thread> threads, Vector<ClientThread> clients, String label, boolean standardstatus, long interval, PrintStream json)
+	{
+		_threads=threads;
+		_clients=clients;
+		_label=label;
+		_standardstatus=standardstatus;
+		_interval=interval;
+		_json=json;
+		if (_json!=null)
+		{
+			_windows=Measurements.getMeasurements().addIntervalRecorders();
+		}
+	}
+
+	/**
+	 * Run and periodically report status.
+	 */
+	public void run()
+	{
+		long st=System.currentTimeMillis();
+
+		long lasten=st;
+		long lasttotalops=0;
+		long next=st;
+		
+		boolean alldone;
+
+		do 
+		{
+			alldone=true;
+
+			long totalops=0;
+
+			//terminate this thread when all the worker threads are done
+			for (Thread t : _threads)
+			{
+				if (t.getState()!=Thread.State.TERMINATED)
+				{
+					alldone=false;
+				}
+			}
+
+			for (ClientThread ct : _clients)
+			{
+				totalops+=ct.getOpsDone();
+			}
+			long outstanding=ClientThread.getOutstanding(_clients);
+			double targetrate=ClientThread.getTargetRate(_clients);
+			long missed=ClientThread.getMissed(_clients);
+
+			long en=System.currentTimeMillis();
+
+			long interval=en-st;
+			//double throughput=1000.0*((double)totalops)/((double)interval);
+
+			double curthroughput=1000.0*(((double)(totalops-lasttotalops))/((double)Math.max(en-lasten,1)));
+			long window=en-lasten;
+			
+			lasttotalops=totalops;
+			lasten=en;
+
+			if (_json!=null)
+			{
+				reportJson(interval,window,totalops,curthroughput,targetrate,targetrate>=0 ? outstanding : -1,missed);
+			}
+			else
+			{
+				reportText(interval,totalops,curthroughput,targetrate,targetrate>=0 ? outstanding : -1,missed);
+			}
+
+			//keep to the schedule, however long reporting took
+			next+=_interval;
+			long sleep=next-System.currentTimeMillis();
+			if (sleep<0)
+			{
+				next=System.currentTimeMillis();
+				sleep=0;
+			}
+
+			try
+			{
+				sleep(sleep);
+			}
+			catch (InterruptedException e)
+			{
+				//do nothing
+			}
+
+		}
+		while (!alldone);
+
+		if (_windows!=null)
+		{
+			Measurements.getMeasurements().removeIntervalRecorders(_windows);
+		}
+	}
+
+	/**
+	 * @param targetrate the throughput the throttle is aiming for, in operations per second, or -1 if the
+	 * clients are not throttled
+	 * @param outstanding the operations that are due according to the throttle but still waiting, or -1 if
+	 * the clients are not throttled
+	 * @param missed the operations the throttle missed so far, or -1 if the clients are not throttled
+	 */
+	void reportText(long interval, long totalops, double curthroughput, double targetrate, long outstanding, long missed)
+	{
+		DecimalFormat d = new DecimalFormat("#.##");
+
+		//operations that are due according to the throttle, but still waiting for their thread
+		String backlog="";
+		if (targetrate>=0)
+		{
+			backlog="target "+d.format(targetrate)+" ops/sec; ";
+		}
+		if (outstanding>=0)
+		{
+			backlog+=outstanding+" outstanding; ";
+		}
+		if (missed>0)
+		{
+			backlog+=missed+" missed; ";
+		}
+		
+		String line;
+		if (totalops==0)
+		{
+			line=_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary();
+		}
+		else
+		{
+			line=_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+backlog+Measurements.getMeasurements().getSummary();
+		}
+
+		System.err.println(line);
+		if (_standardstatus)
+		{
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Write one line of JSON: the time since the start in milliseconds, the total number of operations so far,
+	 * the throughput over the last interval, and for each operation measured in the interval, its count,
+	 * throughput, and mean, 50th, 99th and 99.9th percentile and maximum latencies in microseconds.
+	 *
+	 * @param targetrate the throughput the throttle is aiming for, in operations per second, or -1 if the
+	 * clients are not throttled
+	 * @param outstanding the operations that are due according to the throttle but still waiting, or -1 if
+	 * the clients are not throttled
+	 * @param missed the operations the throttle missed so far, or -1 if the clients are not throttled
+	 */
+	void reportJson(long interval, long window, long totalops, double curthroughput, double targetrate, long outstanding, long missed)
+	{
+		StringWriter line=new StringWriter();
+		try
+		{
+			JsonGenerator g=_jsonfactory.createJsonGenerator(line);
+			g.writeStartObject();
+			g.writeNumberField("time",interval);
+			if (_label.length()>0)
+			{
+				g.writeStringField("label",_label);
+			}
+			g.writeNumberField("operations",totalops);
+			g.writeNumberField("throughput",curthroughput);
+			if (targetrate>=0)
+			{
+				g.writeNumberField("target",targetrate);
+			}
+			if (outstanding>=0)
+			{
+				g.writeNumberField("outstanding",outstanding);
+			}
+			if (missed>=0)
+			{
+				g.writeNumberField("missed",missed);
+			}
+			g.writeObjectFieldStart("latency");
+			for (Map.Entry<String,Histogram> entry : _windows.takeWindows().entrySet())
+			{
+				Histogram h=entry.getValue();
+				g.writeObjectFieldStart(entry.getKey());
+				g.writeNumberField("operations",h.getTotalCount());
+				g.writeNumberField("throughput",window>0 ? 1000.0*h.getTotalCount()/window : 0.0);
+				g.writeNumberField("mean",h.getMean());
+				g.writeNumberField("p50",h.getValueAtPercentile(50));
+				g.writeNumberField("p99",h.getValueAtPercentile(99));
+				g.writeNumberField("p999",h.getValueAtPercentile(99.9));
+				g.writeNumberField("max",h.getMaxValue());
+				g.writeEndObject();
+			}
+			g.writeEndObject();
+			g.writeEndObject();
+			g.close();
+		}
+		catch (IOException e)
+		{
+			//writing to a string
+			throw new RuntimeException(e);
+		}
+
+		_json.println(line.toString());
+		_json.flush();
+	}
+}
@@ -0,0 +1,365 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.Histogram;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.ycsb.measurements.IntervalRecorders;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Publishes the throughput, latency percentiles, return codes and in-flight operations of a running client, so
+ * that monitoring systems can follow a long run live: as an MXBean (see {@link TelemetryMXBean}), and optionally
+ * over HTTP at "/metrics", in the Prometheus text format. A timer takes a snapshot every window, and both read
+ * the latest snapshot. Nothing is added to the path of an operation beyond recording its latency into one more
+ * wait-free recorder (see {@link Measurements#addIntervalRecorders()}); operation counts are read from the
+ * clients without locking.
+ */
+public class Telemetry implements TelemetryMXBean
+{
+	/**
+	 * Set to true to register the telemetry MXBean.
+	 */
+	public static final String TELEMETRY_JMX="telemetry.jmx";
+
+	public static final String TELEMETRY_JMX_DEFAULT="false";
+
+	/**
+	 * The port to serve Prometheus metrics on, at "/metrics". If not set, there is no HTTP endpoint.
+	 */
+	public static final String TELEMETRY_HTTP_PORT="telemetry.http.port";
+
+	/**
+	 * The length of the window that throughputs and latencies are computed over, in milliseconds.
+	 */
+	public static final String TELEMETRY_WINDOW="telemetry.window";
+
+	public static final String TELEMETRY_WINDOW_DEFAULT="1000";
+
+	static final String OBJECT_NAME="com.yahoo.ycsb:type=Telemetry";
+
+	/**
+	 * The statistics kept for the latencies of each operation, as named in {@link #getLatency()}.
+	 */
+	static final String[] STATISTICS={"throughput","mean","p50","p90","p99","p99.9","max"};
+
+	/**
+	 * The percentiles of the statistics, as Prometheus quantiles.
+	 */
+	static final String[] QUANTILES={null,null,"0.5","0.9","0.99","0.999","1"};
+
+	/**
+	 * The state of the client at the end of one window.
+	 */
+	static class Snapshot
+	{
+		long operations;
+		double throughput;
+		long inflight;
+		long outstanding;
+
+		/**
+		 * The statistics of each operation, in the order of {@link Telemetry#STATISTICS}.
+		 */
+		Map<String,double[]> latency=new TreeMap<String,double[]>();
+
+		Map<String,Map<Integer,Long>> returncodes=Collections.emptyMap();
+	}
+
+	Properties _props;
+	Measurements _measurements;
+	Vector<ClientThread> _clients;
+	IntervalRecorders _recorders;
+	long _window;
+
+	volatile Snapshot _snapshot=new Snapshot();
+	long _lastoperations;
+	long _lasttime;
+
+	Timer _timer;
+	HttpServer _server;
+	ObjectName _name;
+
+	/**
+	 * @return true if the properties ask for telemetry over JMX or HTTP
+	 */
+	public static boolean isEnabled(Properties props)
+	{
+		return Boolean.parseBoolean(props.getProperty(TELEMETRY_JMX,TELEMETRY_JMX_DEFAULT))
+			|| (props.getProperty(TELEMETRY_HTTP_PORT)!=null);
+	}
+
+	/**
+	 * @param measurements the measurements of the clients
+	 * @param clients the clients to report on
+	 */
+	Telemetry(Properties props, Measurements measurements, Vector<ClientThread> clients)
+	{
+		_props=props;
+		_measurements=measurements;
+		_clients=clients;
+		_window=Long.parseLong(props.getProperty(TELEMETRY_WINDOW,TELEMETRY_WINDOW_DEFAULT));
+		if (_window<=0)
+		{
+			throw new IllegalArgumentException(TELEMETRY_WINDOW+" must be positive");
+		}
+		_recorders=measurements.addIntervalRecorders();
+		_lasttime=System.currentTimeMillis();
+	}
+
+	/**
+	 * Start taking snapshots, and publish them as configured.
+	 *
+	 * @throws IOException if the HTTP endpoint could not be started
+	 * @throws JMException if the MXBean could not be registered
+	 */
+	void start() throws IOException, JMException
+	{
+		_timer=new Timer("Telemetry",true);
+		_timer.scheduleAtFixedRate(new TimerTask()
+		{
+			public void run()
+			{
+				takeSnapshot();
+			}
+		},_window,_window);
+
+		if (Boolean.parseBoolean(_props.getProperty(TELEMETRY_JMX,TELEMETRY_JMX_DEFAULT)))
+		{
+			_name=new ObjectName(OBJECT_NAME);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,_name);
+		}
+
+		String port=_props.getProperty(TELEMETRY_HTTP_PORT);
+		if (port!=null)
+		{
+			_server=HttpServer.create(new InetSocketAddress(Integer.parseInt(port)),0);
+			_server.createContext("/metrics",new HttpHandler()
+			{
+				public void handle(HttpExchange exchange) throws IOException
+				{
+					byte[] body=toPrometheus(_snapshot).getBytes("UTF-8");
+					exchange.getResponseHeaders().set("Content-Type","text/plain; version=0.0.4; charset=utf-8");
+					exchange.sendResponseHeaders(200,body.length);
+					OutputStream out=exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				}
+			});
+			_server.start();
+		}
+	}
+
+	/**
+	 * Stop taking snapshots, and stop publishing them.
+	 */
+	void stop()
+	{
+		_timer.cancel();
+		if (_server!=null)
+		{
+			_server.stop(0);
+		}
+		if (_name!=null)
+		{
+			try
+			{
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(_name);
+			}
+			catch (JMException e)
+			{
+				//going away anyway
+			}
+		}
+	}
+
+	/**
+	 * Report on a new set of clients from now on, e.g. those of the next phase of a schedule.
+	 */
+	synchronized void setClients(Vector<ClientThread> clients)
+	{
+		_clients=clients;
+		_lastoperations=0;
+	}
+
+	/**
+	 * Take the latencies of the window that just ended out of the recorders, and publish them along with the
+	 * current counts.
+	 */
+	synchronized void takeSnapshot()
+	{
+		long now=System.currentTimeMillis();
+		long elapsed=Math.max(now-_lasttime,1);
+		_lasttime=now;
+
+		Snapshot snapshot=new Snapshot();
+		for (ClientThread client : _clients)
+		{
+			snapshot.operations+=client.getOpsDone();
+			snapshot.inflight+=client.getInFlight();
+		}
+		snapshot.outstanding=ClientThread.getOutstanding(_clients);
+		snapshot.throughput=1000.0*(snapshot.operations-_lastoperations)/elapsed;
+		_lastoperations=snapshot.operations;
+
+		for (Map.Entry<String,Histogram> entry : _recorders.takeWindows().entrySet())
+		{
+			Histogram h=entry.getValue();
+			snapshot.latency.put(entry.getKey(),new double[] {
+				1000.0*h.getTotalCount()/elapsed,
+				h.getMean(),
+				h.getValueAtPercentile(50),
+				h.getValueAtPercentile(90),
+				h.getValueAtPercentile(99),
+				h.getValueAtPercentile(99.9),
+				h.getMaxValue()});
+		}
+		snapshot.returncodes=_measurements.getReturnCodes();
+
+		_snapshot=snapshot;
+	}
+
+	/**
+	 * Format a snapshot in the Prometheus text exposition format.
+	 */
+	static String toPrometheus(Snapshot snapshot)
+	{
+		StringBuilder sb=new StringBuilder();
+		metric(sb,"ycsb_operations_total","counter","Operations completed by all client threads.");
+		sb.append("ycsb_operations_total ").append(snapshot.operations).append('\n');
+		metric(sb,"ycsb_throughput","gauge","Operations per second of all client threads over the last window.");
+		sb.append("ycsb_throughput ").append(snapshot.throughput).append('\n');
+		metric(sb,"ycsb_inflight_operations","gauge","Operations issued but not completed yet.");
+		sb.append("ycsb_inflight_operations ").append(snapshot.inflight).append('\n');
+		metric(sb,"ycsb_outstanding_operations","gauge","Operations due according to the target throughput, but not issued yet.");
+		sb.append("ycsb_outstanding_operations ").append(snapshot.outstanding).append('\n');
+
+		metric(sb,"ycsb_operation_throughput","gauge","Operations per second over the last window, by operation.");
+		for (Map.Entry<String,double[]> entry : snapshot.latency.entrySet())
+		{
+			sb.append("ycsb_operation_throughput{operation=\"").append(escape(entry.getKey())).append("\"} ")
+				.append(entry.getValue()[0]).append('\n');
+		}
+		metric(sb,"ycsb_latency_mean_microseconds","gauge","Mean latency over the last window, by operation.");
+		for (Map.Entry<String,double[]> entry : snapshot.latency.entrySet())
+		{
+			sb.append("ycsb_latency_mean_microseconds{operation=\"").append(escape(entry.getKey())).append("\"} ")
+				.append(entry.getValue()[1]).append('\n');
+		}
+		metric(sb,"ycsb_latency_microseconds","gauge","Latency percentiles over the last window, by operation; quantile 1 is the maximum.");
+		for (Map.Entry<String,double[]> entry : snapshot.latency.entrySet())
+		{
+			for (int i=0; i<QUANTILES.length; i++)
+			{
+				if (QUANTILES[i]!=null)
+				{
+					sb.append("ycsb_latency_microseconds{operation=\"").append(escape(entry.getKey()))
+						.append("\",quantile=\"").append(QUANTILES[i]).append("\"} ")
+						.append((long)entry.getValue()[i]).append('\n');
+				}
+			}
+		}
+
+		metric(sb,"ycsb_return_codes_total","counter","Return codes reported by the DB, by operation and code.");
+		for (Map.Entry<String,Map<Integer,Long>> entry : snapshot.returncodes.entrySet())
+		{
+			for (Map.Entry<Integer,Long> code : entry.getValue().entrySet())
+			{
+				sb.append("ycsb_return_codes_total{operation=\"").append(escape(entry.getKey()))
+					.append("\",code=\"").append(code.getKey()).append("\"} ").append(code.getValue()).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	static void metric(StringBuilder sb, String name, String type, String help)
+	{
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	static String escape(String label)
+	{
+		return label.replace("\\","\\\\").replace("\"","\\\"").replace("\n","\\n");
+	}
+
+	public long getOperations()
+	{
+		return _snapshot.operations;
+	}
+
+	public double getThroughput()
+	{
+		return _snapshot.throughput;
+	}
+
+	public long getInFlight()
+	{
+		return _snapshot.inflight;
+	}
+
+	public long getOutstanding()
+	{
+		return _snapshot.outstanding;
+	}
+
+	public Map<String,Double> getLatency()
+	{
+		Map<String,Double> ret=new LinkedHashMap<String,Double>();
+		for (Map.Entry<String,double[]> entry : _snapshot.latency.entrySet())
+		{
+			for (int i=0; i<STATISTICS.length; i++)
+			{
+				ret.put(entry.getKey()+" "+STATISTICS[i],entry.getValue()[i]);
+			}
+		}
+		return ret;
+	}
+
+	public Map<String,Long> getReturnCodes()
+	{
+		Map<String,Long> ret=new LinkedHashMap<String,Long>();
+		for (Map.Entry<String,Map<Integer,Long>> entry : _snapshot.returncodes.entrySet())
+		{
+			for (Map.Entry<Integer,Long> code : entry.getValue().entrySet())
+			{
+				ret.put(entry.getKey()+" Return="+code.getKey(),code.getValue());
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Map;
+
+/**
+ * Live telemetry of a running client, registered with the platform MBean server as "com.yahoo.ycsb:type=Telemetry"
+ * (see {@link Telemetry}). Throughputs and latencies cover the last window of {@link Telemetry#TELEMETRY_WINDOW}
+ * milliseconds; counts cover the whole run.
+ */
+public interface TelemetryMXBean
+{
+	/**
+	 * The number of operations completed by all client threads.
+	 */
+	long getOperations();
+
+	/**
+	 * The throughput of all client threads over the last window, in operations per second.
+	 */
+	double getThroughput();
+
+	/**
+	 * The number of operations issued but not completed yet.
+	 */
+	long getInFlight();
+
+	/**
+	 * The number of operations that are due according to the target throughput, but have not been issued yet.
+	 */
+	long getOutstanding();
+
+	/**
+	 * The latencies of each operation over the last window, in microseconds, keyed by operation and statistic,
+	 * e.g. "READ p99". The statistics are mean, p50, p90, p99, p99.9 and max, plus the operation's throughput.
+	 */
+	Map<String,Double> getLatency();
+
+	/**
+	 * How many times each return code was reported for each operation, keyed by operation and return code, e.g.
+	 * "READ Return=0".
+	 */
+	Map<String,Long> getReturnCodes();
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A slab of random bytes generated once, from which field values are taken as slices at random offsets. Taking
+ * a value costs one random number instead of one per few bytes, and the bytes are copied out in bulk, so the
+ * client can produce values much faster than with {@link RandomByteIterator}.
+ * <p>
+ * The entropy of the bytes is configurable, in bits per byte: with 8 bits, every byte value is equally likely;
+ * with fewer, bytes are drawn from the 2^bits byte values starting at the space character. Up to 6 bits these are
+ * printable ASCII characters (5 bits gives the same alphabet as RandomByteIterator); 7 bits also uses DEL and
+ * the bytes from 128 to 159, which are not printable. Since values are slices of the same slab, the pool should
+ * be much larger than the compression window of the store under test, or the store may find repeats across
+ * values.
+ * </p>
+ */
+public class ValuePool
+{
+	final byte[] _slab;
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param size the size of the slab in bytes
+	 * @param entropybits the entropy of each byte, from 1 to 8 bits
+	 * @param random the source of the bytes
+	 */
+	public ValuePool(int size, int entropybits, Random random)
+	{
+		if ( (entropybits<1) || (entropybits>8) )
+		{
+			throw new IllegalArgumentException("Entropy must be between 1 and 8 bits per byte, not "+entropybits);
+		}
+
+		_slab=new byte[size];
+		if (entropybits==8)
+		{
+			random.nextBytes(_slab);
+		}
+		else
+		{
+			//take as many symbols as fit from each random long
+			int mask=(1<<entropybits)-1;
+			int persymbol=64/entropybits;
+			int i=0;
+			while (i<size)
+			{
+				long bits=random.nextLong();
+				for (int j=0; (j<persymbol) && (i<size); j++)
+				{
+					_slab[i++]=(byte)(' '+(bits&mask));
+					bits>>>=entropybits;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the size of the slab in bytes, the longest value the pool can produce.
+	 */
+	public int size()
+	{
+		return _slab.length;
+	}
+
+	/**
+	 * Return a value of the given length, a slice of the slab at a random offset.
+	 */
+	public ByteArrayByteIterator newValue(int len)
+	{
+		return new ByteArrayByteIterator(_slab,offset(len),len);
+	}
+
+	/**
+	 * Point a value previously returned by newValue() to a new slice of the given length.
+	 */
+	public void reset(ByteArrayByteIterator value, int len)
+	{
+		value.reset(_slab,offset(len),len);
+	}
+
+	int offset(int len)
+	{
+		if (len>_slab.length)
+		{
+			throw new IllegalArgumentException("Value of "+len+" bytes is larger than the value pool of "+_slab.length+" bytes");
+		}
+		return Utils.random().nextInt(_slab.length-len+1);
+	}
+}
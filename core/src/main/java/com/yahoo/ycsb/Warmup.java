@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * The warmup at the start of a run, during which the client threads run operations as usual but
+ * {@link Measurements} does not keep their latencies or return codes, so that JIT compilation, connection setup
+ * in DB.init() and cold caches do not skew the results. The warmup lasts for at least a given time and at least a
+ * given number of operations, whichever ends later.
+ */
+class Warmup
+{
+	Measurements _measurements;
+	long _time;
+	long _ops;
+
+	/**
+	 * The operations done during the warmup so far; only counted until the number of warmup operations is reached.
+	 */
+	AtomicLong _opsdone=new AtomicLong();
+
+	volatile boolean _timeup;
+	volatile boolean _opsreached;
+	volatile boolean _over;
+	long _end;
+	Timer _timer;
+
+	/**
+	 * @param measurements the measurements to hold back during the warmup
+	 * @param time the minimum length of the warmup, in milliseconds, or 0 for none
+	 * @param ops the minimum number of operations done during the warmup, or 0 for none
+	 */
+	Warmup(Measurements measurements, long time, long ops)
+	{
+		_measurements=measurements;
+		_time=time;
+		_ops=ops;
+		_timeup=(time<=0);
+		_opsreached=(ops<=0);
+		_over=_timeup && _opsreached;
+		_measurements.setWarmup(!_over);
+	}
+
+	/**
+	 * Start the clock of the warmup. Called just before the client threads are started.
+	 *
+	 * @param start the time the run starts
+	 */
+	void start(long start)
+	{
+		_end=start;
+		if (!_timeup)
+		{
+			_timer=new Timer("Warmup",true);
+			_timer.schedule(new TimerTask()
+			{
+				public void run()
+				{
+					_timeup=true;
+					if (_opsreached)
+					{
+						end();
+					}
+				}
+			},_time);
+		}
+	}
+
+	/**
+	 * Stop the clock, whether or not the warmup is over.
+	 */
+	void stop()
+	{
+		if (_timer!=null)
+		{
+			_timer.cancel();
+		}
+	}
+
+	/**
+	 * Count an operation done by a client thread during the warmup.
+	 *
+	 * @return true if the warmup is over
+	 */
+	boolean operationDone()
+	{
+		if (_over)
+		{
+			return true;
+		}
+		if ( !_opsreached && (_opsdone.incrementAndGet()>=_ops) )
+		{
+			_opsreached=true;
+		}
+		if (_opsreached && _timeup)
+		{
+			end();
+		}
+		return _over;
+	}
+
+	synchronized void end()
+	{
+		if (!_over)
+		{
+			_end=System.currentTimeMillis();
+			_measurements.setWarmup(false);
+			_over=true;
+		}
+	}
+
+	/**
+	 * @return true if the warmup is over
+	 */
+	boolean isOver()
+	{
+		return _over;
+	}
+
+	/**
+	 * @return the time the warmup ended, or the run started if there was none
+	 */
+	synchronized long getEnd()
+	{
+		return _end;
+	}
+}
@@ -50,6 +50,17 @@ public abstract class Workload
       {
       }
 
+      /**
+       * Prepare the scenario for the next phase of a schedule (see {@link Client#SCHEDULE_PROPERTY}), with the
+       * properties of that phase. Called in the main client thread before each phase, when no operations are
+       * running. By default this initializes the scenario again; override it to keep expensive shared objects,
+       * such as generators, from one phase to the next.
+       */
+      public void initPhase(Properties p) throws WorkloadException
+      {
+	 init(p);
+      }
+
       /**
        * Initialize any state for a particular client thread. Since the scenario object
        * will be shared among all threads, this is the place to create any state that is specific
@@ -67,6 +78,17 @@ public abstract class Workload
 	 return null;
       }
       
+      /**
+       * Cleanup any state for a particular client thread. Called once per client thread, in that thread, after its
+       * last operation and before its DB is cleaned up.
+       *
+       * @param db the DB the thread used
+       * @param threadstate the object returned by initThread() for this thread
+       */
+      public void cleanupThread(DB db, Object threadstate) throws WorkloadException
+      {
+      }
+
       /**
        * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
        */
@@ -101,6 +123,13 @@ public abstract class Workload
         stopRequested.set(true);
       }
       
+      /**
+       * Withdraw a stop request, so that the next phase of a schedule can run.
+       */
+      void clearStopRequest() {
+        stopRequested.set(false);
+      }
+      
       /**
        * Check the status of the stop request flag.
        * @return true if stop was requested, false otherwise.
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A counter for the keys of records being inserted while other threads read. Values are handed out as by
+ * {@link CounterGenerator}, but lastInt() only returns the highest value up to which every value has been
+ * acknowledged with {@link #acknowledge(int)}, so readers choosing keys up to lastInt() only pick records whose
+ * inserts have completed.
+ * <p>
+ * Values can be handed out to each thread in blocks, so that threads do not all increment the same counter.
+ * This is not the default, since the values left in the blocks of threads that stop are never inserted. A
+ * thread that stops inserting must call {@link #releaseBlock()}, or the values left in its block will hold back
+ * lastInt() for good.
+ * </p>
+ */
+public class AcknowledgedCounterGenerator extends CounterGenerator
+{
+	/**
+	 * The smallest window of unacknowledged values, in bits.
+	 */
+	static final int MIN_WINDOW=1<<20;
+
+	final int _blocksize;
+
+	/**
+	 * The values handed out to each thread: the next one, and the end of the block.
+	 */
+	final ThreadLocal<int[]> _block=new ThreadLocal<int[]>()
+	{
+		protected int[] initialValue()
+		{
+			return new int[2];
+		}
+	};
+
+	/**
+	 * One bit per value beyond the high-water mark, set once the value is acknowledged. Bits are cleared as the
+	 * high-water mark moves past them, so the array is reused as a ring.
+	 */
+	final AtomicLongArray _window;
+	final int _windowmask;
+
+	/**
+	 * The high-water mark: every value up to and including it has been acknowledged.
+	 */
+	volatile int _limit;
+
+	/**
+	 * Held by the thread moving the high-water mark.
+	 */
+	final ReentrantLock _lock=new ReentrantLock();
+
+	/**
+	 * Create a counter that starts at countstart and hands out one value at a time.
+	 */
+	public AcknowledgedCounterGenerator(int countstart)
+	{
+		this(countstart,1,0);
+	}
+
+	/**
+	 * Create a counter that starts at countstart.
+	 *
+	 * @param blocksize the number of values handed out to a thread at a time
+	 * @param maxoutstanding the expected number of values handed out but not acknowledged at any time, to size the
+	 *        window of unacknowledged values
+	 */
+	public AcknowledgedCounterGenerator(int countstart, int blocksize, int maxoutstanding)
+	{
+		super(countstart);
+		_blocksize=blocksize;
+
+		int windowsize=MIN_WINDOW;
+		while (windowsize<4L*maxoutstanding)
+		{
+			windowsize<<=1;
+		}
+		_window=new AtomicLongArray(windowsize/64);
+		_windowmask=windowsize-1;
+		_limit=countstart-1;
+	}
+
+	public int nextInt()
+	{
+		if (_blocksize==1)
+		{
+			return counter.getAndIncrement();
+		}
+
+		int[] block=_block.get();
+		if (block[0]==block[1])
+		{
+			block[0]=counter.getAndAdd(_blocksize);
+			block[1]=block[0]+_blocksize;
+		}
+		return block[0]++;
+	}
+
+	/**
+	 * Return the high-water mark, the highest value up to which all values have been acknowledged.
+	 */
+	@Override
+	public int lastInt()
+	{
+		return _limit;
+	}
+
+	/**
+	 * Mark a value as done, typically once the record with this key has been inserted. If the value is too far
+	 * ahead of the high-water mark to be tracked, this waits until the high-water mark catches up.
+	 */
+	public void acknowledge(int value)
+	{
+		while (value-_limit>_windowmask)
+		{
+			LockSupport.parkNanos(1000);
+		}
+
+		int bit=value&_windowmask;
+		long mask=1L<<(bit&63);
+		int word=bit>>>6;
+		long old;
+		do
+		{
+			old=_window.get(word);
+		}
+		while (!_window.compareAndSet(word,old,old|mask));
+
+		//only the value right after the high-water mark can move it. a thread that moved it checks again after
+		//releasing the lock, so values acknowledged while it held the lock are not missed
+		if (_limit+1!=value)
+		{
+			return;
+		}
+		do
+		{
+			if (!_lock.tryLock())
+			{
+				return;
+			}
+			try
+			{
+				advance();
+			}
+			finally
+			{
+				_lock.unlock();
+			}
+		}
+		while (isAcknowledged(_limit+1));
+	}
+
+	/**
+	 * Acknowledge the values left in the calling thread's block, for a thread that will not insert any more. The
+	 * high-water mark moves past them although their records do not exist, so this should only happen when the
+	 * thread is done.
+	 */
+	public void releaseBlock()
+	{
+		int[] block=_block.get();
+		while (block[0]<block[1])
+		{
+			acknowledge(block[0]++);
+		}
+	}
+
+	boolean isAcknowledged(int value)
+	{
+		int bit=value&_windowmask;
+		return (_window.get(bit>>>6)&(1L<<(bit&63)))!=0;
+	}
+
+	/**
+	 * Move the high-water mark past all acknowledged values following it. Must hold the lock.
+	 */
+	void advance()
+	{
+		int next=_limit+1;
+		while (isAcknowledged(next))
+		{
+			int bit=next&_windowmask;
+			long mask=1L<<(bit&63);
+			int word=bit>>>6;
+			long old;
+			do
+			{
+				old=_window.get(word);
+			}
+			while (!_window.compareAndSet(word,old,old&~mask));
+			next++;
+			_limit=next-1;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Chooses from a discrete set of weighted values 0, 1, ..., n-1 in constant time, using Vose's alias method.
+ * Unlike {@link DiscreteGenerator}, which scans all values and returns a String, this returns the index of the
+ * chosen value, so callers can dispatch on it without comparing strings.
+ */
+public class AliasGenerator extends IntegerGenerator
+{
+	/**
+	 * For each column, the probability of choosing the column itself rather than its alias.
+	 */
+	final double[] _prob;
+
+	/**
+	 * For each column, the value chosen in place of the column itself.
+	 */
+	final int[] _alias;
+
+	final double _mean;
+
+	/**
+	 * Create a generator choosing value i with a probability proportional to weights[i].
+	 *
+	 * @param weights non-negative weights, at least one of them positive
+	 */
+	public AliasGenerator(double[] weights)
+	{
+		int n=weights.length;
+		double sum=0;
+		for (double w : weights)
+		{
+			if (w<0)
+			{
+				throw new IllegalArgumentException("Weights must not be negative");
+			}
+			sum+=w;
+		}
+		if (sum<=0)
+		{
+			throw new IllegalArgumentException("At least one weight must be positive");
+		}
+
+		_prob=new double[n];
+		_alias=new int[n];
+
+		//scale the weights so the average column holds exactly 1, and split them into the columns that
+		//hold less than that and those that hold more
+		double[] scaled=new double[n];
+		int[] small=new int[n];
+		int[] large=new int[n];
+		int nsmall=0;
+		int nlarge=0;
+		double mean=0;
+		for (int i=0; i<n; i++)
+		{
+			scaled[i]=weights[i]*n/sum;
+			mean+=i*weights[i]/sum;
+			if (scaled[i]<1)
+			{
+				small[nsmall++]=i;
+			}
+			else
+			{
+				large[nlarge++]=i;
+			}
+		}
+		_mean=mean;
+
+		//fill up each small column with the excess of a large one
+		while ( (nsmall>0) && (nlarge>0) )
+		{
+			int s=small[--nsmall];
+			int l=large[--nlarge];
+			_prob[s]=scaled[s];
+			_alias[s]=l;
+			scaled[l]=(scaled[l]+scaled[s])-1;
+			if (scaled[l]<1)
+			{
+				small[nsmall++]=l;
+			}
+			else
+			{
+				large[nlarge++]=l;
+			}
+		}
+
+		//what is left is full, up to rounding errors
+		while (nlarge>0)
+		{
+			int l=large[--nlarge];
+			_prob[l]=1;
+			_alias[l]=l;
+		}
+		while (nsmall>0)
+		{
+			int s=small[--nsmall];
+			_prob[s]=1;
+			_alias[s]=s;
+		}
+	}
+
+	/**
+	 * Return the index of the next value chosen.
+	 */
+	public int nextInt()
+	{
+		Random r=Utils.random();
+
+		//one random number picks both the column and the side of it
+		double u=r.nextDouble()*_prob.length;
+		int column=(int)u;
+		int ret=(u-column<_prob[column]) ? column : _alias[column];
+		setLastInt(ret);
+		return ret;
+	}
+
+	@Override
+	public double mean()
+	{
+		return _mean;
+	}
+}
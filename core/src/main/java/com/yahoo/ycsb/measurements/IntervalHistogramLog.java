@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Streams latency percentiles and throughput per time window while the benchmark runs, so that latency spikes
+ * (e.g. from compactions or garbage collection) show up over time instead of being averaged away. Each
+ * operation records into its own wait-free interval recorder (see {@link IntervalRecorders}); a timer takes the
+ * histogram of every window out of the recorders and writes one line per operation, so memory use does not grow
+ * with the length of the run.
+ *
+ * Lines are comma separated: the end of the window in milliseconds since the log was started, the operation,
+ * the number of operations completed in the window, the throughput in operations per second, and the mean, 50th,
+ * 99th and 99.9th percentile and maximum latencies in microseconds. Windows in which an operation did not
+ * complete at all are skipped for that operation.
+ */
+public class IntervalHistogramLog
+{
+	/**
+	 * The file to write the interval log to. If not set, no interval log is written.
+	 */
+	public static final String INTERVAL_LOG="measurement.intervallog";
+
+	/**
+	 * The length of each window of the interval log, in milliseconds.
+	 */
+	public static final String INTERVAL_LOG_WINDOW="measurement.intervallog.window";
+
+	public static final String INTERVAL_LOG_WINDOW_DEFAULT="1000";
+
+	static final String HEADER="time(ms),operation,operations,throughput(ops/sec),mean(us),p50(us),p99(us),p99.9(us),max(us)";
+
+	IntervalRecorders _recorders;
+
+	PrintStream _out;
+	Timer _timer;
+	long _start;
+	long _last;
+
+	/**
+	 * Open the log and start writing a line per operation every window.
+	 *
+	 * @param recorders the recorders of the latencies to log
+	 * @throws IOException if the log file could not be opened
+	 */
+	public IntervalHistogramLog(Properties props, IntervalRecorders recorders) throws IOException
+	{
+		this(props,recorders,new PrintStream(new FileOutputStream(props.getProperty(INTERVAL_LOG)),false));
+	}
+
+	IntervalHistogramLog(Properties props, IntervalRecorders recorders, PrintStream out)
+	{
+		_recorders=recorders;
+		long window=Long.parseLong(props.getProperty(INTERVAL_LOG_WINDOW,INTERVAL_LOG_WINDOW_DEFAULT));
+		if (window<=0)
+		{
+			throw new IllegalArgumentException(INTERVAL_LOG_WINDOW+" must be positive");
+		}
+
+		_out=out;
+		_out.println(HEADER);
+		_out.flush();
+		_start=System.currentTimeMillis();
+		_last=_start;
+
+		_timer=new Timer("IntervalHistogramLog",true);
+		_timer.scheduleAtFixedRate(new TimerTask()
+		{
+			public void run()
+			{
+				writeWindows();
+			}
+		},window,window);
+	}
+
+	/**
+	 * Take the current window out of every recorder and write it.
+	 */
+	synchronized void writeWindows()
+	{
+		if (_out==null)
+		{
+			return;
+		}
+		long now=System.currentTimeMillis();
+		long elapsed=Math.max(now-_last,1);
+		_last=now;
+
+		DecimalFormat d=new DecimalFormat("#.##");
+		for (Map.Entry<String,Histogram> entry : _recorders.takeWindows().entrySet())
+		{
+			Histogram h=entry.getValue();
+			long count=h.getTotalCount();
+			_out.println((now-_start)+","+entry.getKey()+","+count+","+d.format(1000.0*count/elapsed)+","
+				+d.format(h.getMean())+","+h.getValueAtPercentile(50)+","+h.getValueAtPercentile(99)+","
+				+h.getValueAtPercentile(99.9)+","+h.getMaxValue());
+		}
+		_out.flush();
+	}
+
+	/**
+	 * Write the last, partial window and close the log.
+	 */
+	public synchronized void close()
+	{
+		_timer.cancel();
+		if (_out!=null)
+		{
+			writeWindows();
+			_out.close();
+			_out=null;
+		}
+	}
+}
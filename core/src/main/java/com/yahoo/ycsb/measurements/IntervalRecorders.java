@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * One wait-free interval recorder per operation. The histograms of the latencies recorded since the last window
+ * can be taken out at any time, without stopping or blocking the threads that record.
+ */
+public class IntervalRecorders
+{
+	/**
+	 * The recorder and recycled window histogram of one operation.
+	 */
+	static class Window
+	{
+		final String name;
+		final Recorder recorder;
+		Histogram histogram;
+
+		Window(String name, int digits)
+		{
+			this.name=name;
+			recorder=new Recorder(digits);
+		}
+	}
+
+	ConcurrentHashMap<String,Window> windows=new ConcurrentHashMap<String,Window>();
+
+	/**
+	 * The windows of intended latencies, keyed by plain operation name.
+	 */
+	ConcurrentHashMap<String,Window> intendedwindows=new ConcurrentHashMap<String,Window>();
+
+	int _digits;
+
+	/**
+	 * @param digits the number of significant decimal digits to which latencies are kept
+	 */
+	public IntervalRecorders(int digits)
+	{
+		_digits=digits;
+	}
+
+	static Window getWindow(ConcurrentHashMap<String,Window> windows, String operation, String name, int digits)
+	{
+		Window w=windows.get(operation);
+		if (w==null)
+		{
+			Window created=new Window(name,digits);
+			w=windows.putIfAbsent(operation,created);
+			if (w==null)
+			{
+				w=created;
+			}
+		}
+		return w;
+	}
+
+	/**
+	 * Record the latency of one operation.
+	 */
+	public void record(String operation, int latency)
+	{
+		getWindow(windows,operation,operation,_digits).recorder.recordValue(latency);
+	}
+
+	/**
+	 * Record the latency of one operation from its intended start time, as "Intended-"+operation.
+	 */
+	public void recordIntended(String operation, int latency)
+	{
+		Window w=intendedwindows.get(operation);
+		if (w==null)
+		{
+			w=getWindow(intendedwindows,operation,"Intended-"+operation,_digits);
+		}
+		w.recorder.recordValue(latency);
+	}
+
+	/**
+	 * Take the window of every operation, starting new ones. Operations without latencies in the window are left
+	 * out. The returned histograms are recycled by the next call, so they are only valid until then.
+	 *
+	 * @return the histogram of each operation's window, by operation name, intended latencies last
+	 */
+	public synchronized Map<String,Histogram> takeWindows()
+	{
+		Map<String,Histogram> ret=new LinkedHashMap<String,Histogram>();
+		takeWindows(windows,ret);
+		takeWindows(intendedwindows,ret);
+		return ret;
+	}
+
+	static void takeWindows(ConcurrentHashMap<String,Window> windows, Map<String,Histogram> into)
+	{
+		for (Window w : windows.values())
+		{
+			w.histogram=w.recorder.getIntervalHistogram(w.histogram);
+			if (w.histogram.getTotalCount()>0)
+			{
+				into.put(w.name,w.histogram);
+			}
+		}
+	}
+}
@@ -18,8 +18,13 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -31,11 +36,34 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
  */
 public class Measurements
 {
+	/**
+	 * How latencies are kept: "histogram" (1 ms buckets), "hdrhistogram" (log buckets, microsecond percentiles)
+	 * or "timeseries" (averages over time).
+	 */
 	private static final String MEASUREMENT_TYPE = "measurementtype";
 
 	private static final String MEASUREMENT_TYPE_DEFAULT = "histogram";
 
-	static Measurements singleton=null;
+	/**
+	 * The number of shards each histogram measurement is split into. Client threads are given shards round-robin
+	 * the first time they record, so that they do not all contend for the same monitor; the shards are only merged
+	 * when a summary or the final results are requested. Defaults to the threadcount, so that each client thread
+	 * records into a shard of its own, whose monitor it never has to wait for. This is lock striping rather than
+	 * wait-free recording, which the "hdrhistogram" measurement type provides.
+	 */
+	public static final String MEASUREMENT_STRIPES = "measurement.stripes";
+
+	/**
+	 * Which interval an operation's latency covers. "op" measures from the moment the operation is issued,
+	 * "intended" from the moment the throttle scheduled it to be issued, so that time spent waiting behind
+	 * a stalled operation is not hidden, and "both" records the two side by side. Intended latencies are
+	 * reported as separate metrics, named "Intended-" followed by the operation.
+	 */
+	public static final String MEASUREMENT_INTERVAL = "measurement.interval";
+
+	public static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
+
+	static volatile Measurements singleton=null;
 	
 	static Properties measurementproperties=null;
 	
@@ -47,17 +75,71 @@ public class Measurements
       /**
        * Return the singleton Measurements object.
        */
-	public synchronized static Measurements getMeasurements()
+	public static Measurements getMeasurements()
 	{
 		if (singleton==null)
 		{
-			singleton=new Measurements(measurementproperties);
+			synchronized(Measurements.class)
+			{
+				if (singleton==null)
+				{
+					singleton=new Measurements(measurementproperties);
+				}
+			}
 		}
 		return singleton;
 	}
 
-	HashMap<String,OneMeasurement> data;
-	boolean histogram=true;
+	static final int HISTOGRAM=0;
+	static final int HDRHISTOGRAM=1;
+	static final int TIMESERIES=2;
+
+	static final int INTERVAL_OP=0;
+	static final int INTERVAL_INTENDED=1;
+	static final int INTERVAL_BOTH=2;
+
+	/**
+	 * The time the current thread's operation was scheduled to start, or 0 if it was not scheduled.
+	 */
+	static class StartTimeHolder
+	{
+		long time;
+	}
+
+	ThreadLocal<StartTimeHolder> intendedstarttime=new ThreadLocal<StartTimeHolder>()
+	{
+		protected StartTimeHolder initialValue()
+		{
+			return new StartTimeHolder();
+		}
+	};
+
+	ConcurrentHashMap<String,OneMeasurement> data;
+
+	/**
+	 * The intended latency measurements, keyed by plain operation name so that no name has to be built per
+	 * operation. Each of them is also in data, under its own name.
+	 */
+	ConcurrentHashMap<String,OneMeasurement> intendeddata;
+	int measurementtype=HISTOGRAM;
+	int stripes;
+	int measurementinterval=INTERVAL_OP;
+
+	/**
+	 * The log of latency percentiles per time window, or null if none is written.
+	 */
+	IntervalHistogramLog intervallog;
+
+	/**
+	 * The recorders that reporters take latency windows out of, see {@link #addIntervalRecorders()}.
+	 */
+	volatile IntervalRecorders[] intervalrecorders=new IntervalRecorders[0];
+
+	/**
+	 * True during the warmup of the client, when latencies and return codes are only passed on to the interval
+	 * recorders.
+	 */
+	volatile boolean warmup;
 
 	private Properties _props;
 	
@@ -66,50 +148,157 @@ public class Measurements
        */
 	public Measurements(Properties props)
 	{
-		data=new HashMap<String,OneMeasurement>();
+		data=new ConcurrentHashMap<String,OneMeasurement>();
+		intendeddata=new ConcurrentHashMap<String,OneMeasurement>();
 		
 		_props=props;
 		
-		if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("histogram")==0)
+		String type=_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT);
+		if (type.compareTo("histogram")==0)
+		{
+			measurementtype=HISTOGRAM;
+		}
+		else if (type.compareTo("hdrhistogram")==0)
+		{
+			measurementtype=HDRHISTOGRAM;
+		}
+		else
+		{
+			measurementtype=TIMESERIES;
+		}
+
+		stripes=Integer.parseInt(_props.getProperty(MEASUREMENT_STRIPES, _props.getProperty("threadcount", "1")));
+
+		String interval=_props.getProperty(MEASUREMENT_INTERVAL, MEASUREMENT_INTERVAL_DEFAULT);
+		if (interval.compareTo("op")==0)
 		{
-			histogram=true;
+			measurementinterval=INTERVAL_OP;
+		}
+		else if (interval.compareTo("intended")==0)
+		{
+			measurementinterval=INTERVAL_INTENDED;
+		}
+		else if (interval.compareTo("both")==0)
+		{
+			measurementinterval=INTERVAL_BOTH;
 		}
 		else
 		{
-			histogram=false;
+			throw new IllegalArgumentException("Unknown "+MEASUREMENT_INTERVAL+" \""+interval+"\"");
+		}
+
+		if (_props.getProperty(IntervalHistogramLog.INTERVAL_LOG)!=null)
+		{
+			try
+			{
+				intervallog=new IntervalHistogramLog(_props,addIntervalRecorders());
+			}
+			catch (IOException e)
+			{
+				throw new IllegalArgumentException("Could not open "+IntervalHistogramLog.INTERVAL_LOG+": "+e.getMessage());
+			}
 		}
 	}
 	
 	OneMeasurement constructOneMeasurement(String name)
 	{
-		if (histogram)
+		switch (measurementtype)
 		{
+		case HISTOGRAM:
+			if (stripes>1)
+			{
+				return new OneMeasurementStripedHistogram(name,stripes,_props);
+			}
 			return new OneMeasurementHistogram(name,_props);
-		}
-		else
-		{
+		case HDRHISTOGRAM:
+			//already records without locking, so there is nothing to gain from striping
+			return new OneMeasurementHdrHistogram(name,_props);
+		default:
 			return new OneMeasurementTimeSeries(name,_props);
 		}
 	}
 
       /**
-       * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured value.
+       * Return the measurement for the given operation, creating it on first use.
        */
-	public synchronized void measure(String operation, int latency)
+	OneMeasurement getOneMeasurement(String operation)
 	{
-		if (!data.containsKey(operation))
+		OneMeasurement m=data.get(operation);
+		if (m==null)
 		{
-			synchronized(this)
+			OneMeasurement created=constructOneMeasurement(operation);
+			m=data.putIfAbsent(operation,created);
+			if (m==null)
 			{
-				if (!data.containsKey(operation))
-				{
-					data.put(operation,constructOneMeasurement(operation));
-				}
+				m=created;
 			}
 		}
+		return m;
+	}
+
+      /**
+       * Return the intended latency measurement for the given operation, creating it on first use.
+       */
+	OneMeasurement getIntendedMeasurement(String operation)
+	{
+		OneMeasurement m=intendeddata.get(operation);
+		if (m==null)
+		{
+			m=getOneMeasurement("Intended-"+operation);
+			intendeddata.putIfAbsent(operation,m);
+		}
+		return m;
+	}
+
+      /**
+       * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured value.
+       */
+	public void measure(String operation, int latency)
+	{
+		if (measurementinterval==INTERVAL_INTENDED)
+		{
+			return;
+		}
+		for (IntervalRecorders recorders : intervalrecorders)
+		{
+			recorders.record(operation,latency);
+		}
+		if (warmup)
+		{
+			return;
+		}
+		try
+		{
+			getOneMeasurement(operation).measure(latency);
+		}
+		catch (java.lang.ArrayIndexOutOfBoundsException e)
+		{
+			System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+	}
+
+      /**
+       * Report the latency of an operation measured from its intended start time. Recorded as "Intended-"+operation.
+       */
+	public void measureIntended(String operation, int latency)
+	{
+		if (measurementinterval==INTERVAL_OP)
+		{
+			return;
+		}
+		for (IntervalRecorders recorders : intervalrecorders)
+		{
+			recorders.recordIntended(operation,latency);
+		}
+		if (warmup)
+		{
+			return;
+		}
 		try
 		{
-			data.get(operation).measure(latency);
+			getIntendedMeasurement(operation).measure(latency);
 		}
 		catch (java.lang.ArrayIndexOutOfBoundsException e)
 		{
@@ -120,23 +309,122 @@ public class Measurements
 	}
 
       /**
-       * Report a return code for a single DB operaiton.
+       * Set the time (as returned by System.nanoTime()) at which the calling thread's next operation was
+       * scheduled to start.
+       */
+	public void setIntendedStartTimeNs(long time)
+	{
+		if (measurementinterval==INTERVAL_OP)
+		{
+			return;
+		}
+		intendedstarttime.get().time=time;
+	}
+
+      /**
+       * Return the time at which the calling thread's current operation was scheduled to start, or 0 if
+       * the operation was not scheduled (or intended latencies are not being recorded).
+       */
+	public long getIntendedStartTimeNs()
+	{
+		if (measurementinterval==INTERVAL_OP)
+		{
+			return 0;
+		}
+		return intendedstarttime.get().time;
+	}
+
+      /**
+       * Report a return code for a single DB operaiton. When only intended latencies are measured, the return code
+       * is kept with them, so that no measurement without latencies is exported.
        */
 	public void reportReturnCode(String operation, int code)
 	{
-		if (!data.containsKey(operation))
+		if (warmup)
+		{
+			return;
+		}
+		if (measurementinterval==INTERVAL_INTENDED)
+		{
+			getIntendedMeasurement(operation).reportReturnCode(code);
+			return;
+		}
+		getOneMeasurement(operation).reportReturnCode(code);
+	}
+	
+      /**
+       * Drop all measurements and return codes, to start measuring a new phase. Must not be called while operations
+       * are being measured.
+       */
+	public void reset()
+	{
+		data=new ConcurrentHashMap<String,OneMeasurement>();
+		intendeddata=new ConcurrentHashMap<String,OneMeasurement>();
+	}
+
+      /**
+       * Start or end the warmup. During the warmup, latencies and return codes are not kept; they only show up in
+       * the interval recorders, so live reports still cover the warmup.
+       */
+	public void setWarmup(boolean warmup)
+	{
+		this.warmup=warmup;
+	}
+
+      /**
+       * Start recording every latency measured from now on into a new set of interval recorders as well, for a
+       * reporter (such as the status thread) that takes the latencies of each time window out of them. Taking
+       * windows out of the recorders does not block the threads that measure.
+       */
+	public synchronized IntervalRecorders addIntervalRecorders()
+	{
+		IntervalRecorders ret=new IntervalRecorders(Integer.parseInt(_props.getProperty(OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS,OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS_DEFAULT)));
+		IntervalRecorders[] recorders=new IntervalRecorders[intervalrecorders.length+1];
+		System.arraycopy(intervalrecorders,0,recorders,0,intervalrecorders.length);
+		recorders[intervalrecorders.length]=ret;
+		intervalrecorders=recorders;
+		return ret;
+	}
+
+      /**
+       * Stop recording latencies into a set of interval recorders returned by {@link #addIntervalRecorders()}.
+       */
+	public synchronized void removeIntervalRecorders(IntervalRecorders remove)
+	{
+		List<IntervalRecorders> recorders=new ArrayList<IntervalRecorders>(Arrays.asList(intervalrecorders));
+		recorders.remove(remove);
+		intervalrecorders=recorders.toArray(new IntervalRecorders[recorders.size()]);
+	}
+
+      /**
+       * Write the last window of the interval log, if there is one, and close it. Called once all operations
+       * have completed.
+       */
+	public void closeIntervalLog()
+	{
+		if (intervallog!=null)
+		{
+			intervallog.close();
+		}
+	}
+
+      /**
+       * Return how many times each return code was reported so far for each operation, by operation name.
+       */
+	public Map<String,Map<Integer,Long>> getReturnCodes()
+	{
+		Map<String,Map<Integer,Long>> ret=new TreeMap<String,Map<Integer,Long>>();
+		for (OneMeasurement m : data.values())
 		{
-			synchronized(this)
+			Map<Integer,Long> codes=m.getReturnCodes();
+			if (!codes.isEmpty())
 			{
-				if (!data.containsKey(operation))
-				{
-					data.put(operation,constructOneMeasurement(operation));
-				}
+				ret.put(m.getName(),codes);
 			}
 		}
-		data.get(operation).reportReturnCode(code);
+		return ret;
 	}
-	
+
   /**
    * Export the current measurements to a suitable format.
    * 
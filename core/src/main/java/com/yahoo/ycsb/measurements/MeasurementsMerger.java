@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter;
+
+/**
+ * Merges the results that several clients wrote with a {@link MergeableMeasurementsExporter} into one set of
+ * measurements. Histograms are added up, so percentiles of the merged measurements are those of all the
+ * operations of all the clients, rather than an average of each client's percentiles. The clients are assumed
+ * to have run at the same time: the merged run time is the longest one, and the merged throughput is the total
+ * number of operations over that time.
+ */
+public class MeasurementsMerger
+{
+	Measurements _measurements;
+
+	long _operations;
+
+	long _runtime;
+
+	/**
+	 * @param measurements the measurements to merge into; their measurement type must be "hdrhistogram"
+	 */
+	public MeasurementsMerger(Measurements measurements)
+	{
+		if (measurements.measurementtype!=Measurements.HDRHISTOGRAM)
+		{
+			throw new IllegalArgumentException("Results can only be merged into hdrhistogram measurements");
+		}
+		_measurements=measurements;
+	}
+
+	/**
+	 * Merge the results of one client.
+	 *
+	 * @throws IOException if the results could not be read, or were not written by a MergeableMeasurementsExporter
+	 */
+	public void merge(InputStream in) throws IOException
+	{
+		BufferedReader reader=new BufferedReader(new InputStreamReader(in));
+		double runtime=0;
+		double throughput=0;
+		long operations=-1;
+		String line;
+		while ((line=reader.readLine())!=null)
+		{
+			if (line.length()==0)
+			{
+				continue;
+			}
+			String[] parts=line.split("\t");
+			if (parts.length!=3)
+			{
+				throw new IOException("Not a mergeable result line: "+line);
+			}
+			String metric=parts[0];
+			String measurement=parts[1];
+			String value=parts[2];
+
+			try
+			{
+				if (metric.compareTo("OVERALL")==0)
+				{
+					if (measurement.compareTo("RunTime(ms)")==0)
+					{
+						runtime=Double.parseDouble(value);
+					}
+					else if (measurement.compareTo("Operations")==0)
+					{
+						operations=Math.round(Double.parseDouble(value));
+					}
+					else if (measurement.compareTo("Throughput(ops/sec)")==0)
+					{
+						throughput=Double.parseDouble(value);
+					}
+				}
+				else if (measurement.compareTo(MergeableMeasurementsExporter.HISTOGRAM)==0)
+				{
+					getHdrHistogram(metric).add(MergeableMeasurementsExporter.decode(value));
+				}
+				else if (measurement.startsWith("Return="))
+				{
+					int code=Integer.parseInt(measurement.substring("Return=".length()));
+					getHdrHistogram(metric).reportReturnCode(code,(int)Double.parseDouble(value));
+				}
+				//the other measurements are summaries, computed again from the merged histograms
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IOException("Not a mergeable result line: "+line);
+			}
+		}
+
+		//results written before the operation count was exported only have the throughput
+		_operations+=(operations>=0) ? operations : Math.round(throughput*runtime/1000.0);
+		_runtime=Math.max(_runtime,Math.round(runtime));
+	}
+
+	OneMeasurementHdrHistogram getHdrHistogram(String metric)
+	{
+		return (OneMeasurementHdrHistogram)_measurements.getOneMeasurement(metric);
+	}
+
+	/**
+	 * Return the total number of operations of the merged clients.
+	 */
+	public long getOperations()
+	{
+		return _operations;
+	}
+
+	/**
+	 * Return the longest run time of the merged clients, in milliseconds.
+	 */
+	public long getRunTime()
+	{
+		return _runtime;
+	}
+}
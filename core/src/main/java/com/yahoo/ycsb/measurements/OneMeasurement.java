@@ -18,6 +18,7 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.util.Map;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -45,6 +46,11 @@ public abstract class OneMeasurement {
 
 	public abstract String getSummary();
 
+	/**
+	 * Return how many times each return code was reported so far. Safe to call while operations are measured.
+	 */
+	public abstract Map<Integer,Long> getReturnCodes();
+
   /**
    * Export the current measurements to a suitable format.
    * 
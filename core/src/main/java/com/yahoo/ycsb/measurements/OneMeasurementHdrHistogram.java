@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter;
+
+/**
+ * Take measurements and maintain a high dynamic range histogram of a given metric, such as READ LATENCY.
+ * Unlike {@link OneMeasurementHistogram}, values are kept in logarithmic buckets with a configurable number of
+ * significant digits, so percentiles are reported in microseconds over the whole range of latencies while the
+ * memory footprint stays independent of the number of operations. Recording is wait-free.
+ */
+public class OneMeasurementHdrHistogram extends OneMeasurement
+{
+	/**
+	 * The number of significant decimal digits to which recorded values are kept. Must be between 0 and 5.
+	 */
+	public static final String SIGNIFICANT_DIGITS="hdrhistogram.significantdigits";
+	public static final String SIGNIFICANT_DIGITS_DEFAULT="3";
+
+	/**
+	 * Comma separated list of the percentiles to report.
+	 */
+	public static final String PERCENTILES="hdrhistogram.percentiles";
+	public static final String PERCENTILES_DEFAULT="50,90,99,99.9,99.99";
+
+	Recorder _recorder;
+
+	/**
+	 * Everything recorded so far, built up from the interval histograms taken out of the recorder.
+	 */
+	Histogram _totalhistogram;
+
+	/**
+	 * Recycled by the recorder when taking out an interval histogram.
+	 */
+	Histogram _intervalhistogram;
+
+	double[] _percentiles;
+
+	ConcurrentHashMap<Integer,AtomicInteger> returncodes;
+
+	public OneMeasurementHdrHistogram(String name, Properties props)
+	{
+		super(name);
+		int digits=Integer.parseInt(props.getProperty(SIGNIFICANT_DIGITS, SIGNIFICANT_DIGITS_DEFAULT));
+		_recorder=new Recorder(digits);
+		_totalhistogram=new Histogram(digits);
+		_percentiles=parsePercentiles(props.getProperty(PERCENTILES, PERCENTILES_DEFAULT));
+		returncodes=new ConcurrentHashMap<Integer,AtomicInteger>();
+	}
+
+	static double[] parsePercentiles(String list)
+	{
+		String[] parts=list.split(",");
+		double[] ret=new double[parts.length];
+		for (int i=0; i<parts.length; i++)
+		{
+			ret[i]=Double.parseDouble(parts[i].trim());
+		}
+		return ret;
+	}
+
+	/**
+	 * Name a percentile the way the other measurements do, e.g. "99thPercentileLatency(us)".
+	 */
+	static String percentileName(double percentile)
+	{
+		String p=new DecimalFormat("#.####").format(percentile);
+		String suffix="th";
+		if (percentile==Math.floor(percentile))
+		{
+			long l=(long)percentile;
+			if ( (l%10==1) && (l%100!=11) )
+			{
+				suffix="st";
+			}
+			else if ( (l%10==2) && (l%100!=12) )
+			{
+				suffix="nd";
+			}
+			else if ( (l%10==3) && (l%100!=13) )
+			{
+				suffix="rd";
+			}
+		}
+		return p+suffix+"PercentileLatency(us)";
+	}
+
+	/**
+	 * Take the values recorded since the last call out of the recorder, and add them to the total.
+	 *
+	 * @return the histogram of the values recorded since the last call
+	 */
+	synchronized Histogram takeInterval()
+	{
+		_intervalhistogram=_recorder.getIntervalHistogram(_intervalhistogram);
+		_totalhistogram.add(_intervalhistogram);
+		return _intervalhistogram;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
+	 */
+	public void reportReturnCode(int code)
+	{
+		reportReturnCode(code,1);
+	}
+
+	/**
+	 * Count a return code several times, e.g. when merging the results of another client.
+	 */
+	void reportReturnCode(int code, int count)
+	{
+		Integer Icode=code;
+		AtomicInteger counter=returncodes.get(Icode);
+		if (counter==null)
+		{
+			AtomicInteger created=new AtomicInteger();
+			counter=returncodes.putIfAbsent(Icode,created);
+			if (counter==null)
+			{
+				counter=created;
+			}
+		}
+		counter.addAndGet(count);
+	}
+
+	/**
+	 * Add all the values of a histogram recorded elsewhere, e.g. by another client, to the total.
+	 */
+	synchronized void add(Histogram histogram)
+	{
+		_totalhistogram.add(histogram);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+	 */
+	public void measure(int latency)
+	{
+		_recorder.recordValue(latency);
+	}
+
+	@Override
+	public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		Histogram total;
+		synchronized(this)
+		{
+			takeInterval();
+			total=_totalhistogram.copy();
+		}
+
+		exporter.write(getName(), "Operations", (int)total.getTotalCount());
+		exporter.write(getName(), "AverageLatency(us)", total.getMean());
+		exporter.write(getName(), "MinLatency(us)", (int)total.getMinValue());
+		exporter.write(getName(), "MaxLatency(us)", (int)total.getMaxValue());
+
+		for (double percentile : _percentiles)
+		{
+			exporter.write(getName(), percentileName(percentile), (int)total.getValueAtPercentile(percentile));
+		}
+
+		for (Map.Entry<Integer,AtomicInteger> entry : returncodes.entrySet())
+		{
+			exporter.write(getName(), "Return="+entry.getKey(), entry.getValue().get());
+		}
+
+		if (exporter instanceof MergeableMeasurementsExporter)
+		{
+			((MergeableMeasurementsExporter)exporter).writeHistogram(getName(), total);
+		}
+	}
+
+	@Override
+	public Map<Integer,Long> getReturnCodes()
+	{
+		Map<Integer,Long> ret=new HashMap<Integer,Long>();
+		for (Map.Entry<Integer,AtomicInteger> entry : returncodes.entrySet())
+		{
+			ret.put(entry.getKey(),(long)entry.getValue().get());
+		}
+		return ret;
+	}
+
+	@Override
+	public synchronized String getSummary()
+	{
+		Histogram window=takeInterval();
+		if (window.getTotalCount()==0)
+		{
+			return "";
+		}
+		DecimalFormat d = new DecimalFormat("#.##");
+		return "["+getName()+" AverageLatency(us)="+d.format(window.getMean())
+			+" 99thPercentileLatency(us)="+window.getValueAtPercentile(99)
+			+" MaxLatency(us)="+window.getMaxValue()+"]";
+	}
+
+}
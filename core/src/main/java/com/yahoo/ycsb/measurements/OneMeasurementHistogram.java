@@ -20,9 +20,13 @@ package com.yahoo.ycsb.measurements;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
+import org.HdrHistogram.Histogram;
+
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter;
 
 
 /**
@@ -111,6 +115,48 @@ public class OneMeasurementHistogram extends OneMeasurement
 	}
 
 
+	/**
+	 * Add the measurements taken by another histogram with the same number of buckets to this one. The other
+	 * histogram's status window is handed over as well (and reset), so that the summary of a merged histogram
+	 * covers the windows of all of its parts.
+	 */
+	synchronized void merge(OneMeasurementHistogram other)
+	{
+		synchronized(other)
+		{
+			for (int i=0; i<_buckets; i++)
+			{
+				histogram[i]+=other.histogram[i];
+			}
+			histogramoverflow+=other.histogramoverflow;
+			operations+=other.operations;
+			totallatency+=other.totallatency;
+			windowoperations+=other.windowoperations;
+			windowtotallatency+=other.windowtotallatency;
+			other.windowoperations=0;
+			other.windowtotallatency=0;
+
+			if ( (other.min>=0) && ( (min<0) || (other.min<min) ) )
+			{
+				min=other.min;
+			}
+
+			if ( (other.max>=0) && ( (max<0) || (other.max>max) ) )
+			{
+				max=other.max;
+			}
+
+			for (Integer I : other.returncodes.keySet())
+			{
+				if (!returncodes.containsKey(I))
+				{
+					returncodes.put(I,new int[1]);
+				}
+				returncodes.get(I)[0]+=other.returncodes.get(I)[0];
+			}
+		}
+	}
+
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
@@ -142,6 +188,13 @@ public class OneMeasurementHistogram extends OneMeasurement
       exporter.write(getName(), "Return="+I, val[0]);
     }     
 
+    if (exporter instanceof MergeableMeasurementsExporter)
+    {
+      //the buckets are all in the histogram
+      ((MergeableMeasurementsExporter)exporter).writeHistogram(getName(), toHdrHistogram());
+      return;
+    }
+
     for (int i=0; i<_buckets; i++)
     {
       exporter.write(getName(), Integer.toString(i), histogram[i]);
@@ -149,6 +202,69 @@ public class OneMeasurementHistogram extends OneMeasurement
     exporter.write(getName(), ">"+_buckets, histogramoverflow);
   }
 
+	/**
+	 * Convert the buckets into a histogram of microsecond latencies, so they can be merged with the results of
+	 * other clients. The operations of each bucket are recorded at the bucket's lower bound, and those that
+	 * overflowed the buckets at the maximum latency, except that the minimum and maximum latencies are kept
+	 * exactly.
+	 */
+	synchronized Histogram toHdrHistogram()
+	{
+		Histogram ret=new Histogram(3);
+		if (operations==0)
+		{
+			return ret;
+		}
+
+		int[] counts=histogram.clone();
+		int overflow=histogramoverflow;
+		if (min/1000>=_buckets)
+		{
+			overflow--;
+		}
+		else
+		{
+			counts[min/1000]--;
+		}
+		ret.recordValue(min);
+		if (operations>1)
+		{
+			if (max/1000>=_buckets)
+			{
+				overflow--;
+			}
+			else
+			{
+				counts[max/1000]--;
+			}
+			ret.recordValue(max);
+		}
+
+		for (int i=0; i<_buckets; i++)
+		{
+			if (counts[i]>0)
+			{
+				ret.recordValueWithCount(i*1000L,counts[i]);
+			}
+		}
+		if (overflow>0)
+		{
+			ret.recordValueWithCount(max,overflow);
+		}
+		return ret;
+	}
+
+	@Override
+	public synchronized Map<Integer,Long> getReturnCodes()
+	{
+		Map<Integer,Long> ret=new HashMap<Integer,Long>();
+		for (Map.Entry<Integer,int[]> entry : returncodes.entrySet())
+		{
+			ret.put(entry.getKey(),(long)entry.getValue()[0]);
+		}
+		return ret;
+	}
+
 	@Override
 	public String getSummary() {
 		if (windowoperations==0)
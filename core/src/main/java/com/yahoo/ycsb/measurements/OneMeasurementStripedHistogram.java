@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * A histogram of a given metric that is split into several independent shards. Threads are given stripes
+ * round-robin the first time they record, so up to as many threads as there are stripes never compete for a
+ * monitor, and more threads share them evenly.
+ * The shards are merged into a fresh {@link OneMeasurementHistogram} whenever a summary or an export is
+ * requested, which happens rarely compared to measure() calls.
+ */
+public class OneMeasurementStripedHistogram extends OneMeasurement
+{
+	/**
+	 * The stripe to give to the next thread that records.
+	 */
+	static final AtomicInteger _nextstripe=new AtomicInteger();
+
+	/**
+	 * The stripe of each thread, the same for all the striped histograms.
+	 */
+	static final ThreadLocal<Integer> _stripe=new ThreadLocal<Integer>()
+	{
+		protected Integer initialValue()
+		{
+			return _nextstripe.getAndIncrement()&Integer.MAX_VALUE;
+		}
+	};
+
+	OneMeasurementHistogram[] _shards;
+	Properties _props;
+
+	public OneMeasurementStripedHistogram(String name, int stripes, Properties props)
+	{
+		super(name);
+		_props=props;
+		_shards=new OneMeasurementHistogram[stripes];
+		for (int i=0; i<stripes; i++)
+		{
+			_shards[i]=new OneMeasurementHistogram(name,props);
+		}
+	}
+
+	OneMeasurementHistogram shard()
+	{
+		return _shards[_stripe.get()%_shards.length];
+	}
+
+	/**
+	 * Merge all shards into a new histogram.
+	 */
+	OneMeasurementHistogram merged()
+	{
+		OneMeasurementHistogram ret=new OneMeasurementHistogram(getName(),_props);
+		for (OneMeasurementHistogram shard : _shards)
+		{
+			ret.merge(shard);
+		}
+		return ret;
+	}
+
+	@Override
+	public void reportReturnCode(int code)
+	{
+		shard().reportReturnCode(code);
+	}
+
+	@Override
+	public void measure(int latency)
+	{
+		shard().measure(latency);
+	}
+
+	@Override
+	public String getSummary()
+	{
+		return merged().getSummary();
+	}
+
+	@Override
+	public Map<Integer,Long> getReturnCodes()
+	{
+		Map<Integer,Long> ret=new HashMap<Integer,Long>();
+		for (OneMeasurementHistogram shard : _shards)
+		{
+			for (Map.Entry<Integer,Long> entry : shard.getReturnCodes().entrySet())
+			{
+				Long count=ret.get(entry.getKey());
+				ret.put(entry.getKey(),(count==null ? 0 : count)+entry.getValue());
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		merged().exportMeasurements(exporter);
+	}
+}
@@ -20,6 +20,7 @@ package com.yahoo.ycsb.measurements;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -40,7 +41,8 @@ class SeriesUnit
 }
 
 /**
- * A time series measurement of a metric, such as READ LATENCY.
+ * A time series measurement of a metric, such as READ LATENCY. Recording is synchronized, as in
+ * {@link OneMeasurementHistogram}, since client threads record into it concurrently.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement 
 {
@@ -103,7 +105,7 @@ public class OneMeasurementTimeSeries extends OneMeasurement
 	}
 	
 	@Override
-	public void measure(int latency) 
+	public synchronized void measure(int latency) 
 	{
 		checkEndOfUnit(false);
 		
@@ -127,7 +129,7 @@ public class OneMeasurementTimeSeries extends OneMeasurement
 
 
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
     checkEndOfUnit(true);
 
@@ -151,7 +153,18 @@ public class OneMeasurementTimeSeries extends OneMeasurement
   }
 	
 	@Override
-	public void reportReturnCode(int code) {
+	public synchronized Map<Integer,Long> getReturnCodes()
+	{
+		Map<Integer,Long> ret=new HashMap<Integer,Long>();
+		for (Map.Entry<Integer,int[]> entry : returncodes.entrySet())
+		{
+			ret.put(entry.getKey(),(long)entry.getValue()[0]);
+		}
+		return ret;
+	}
+
+	@Override
+	public synchronized void reportReturnCode(int code) {
 		Integer Icode=code;
 		if (!returncodes.containsKey(Icode))
 		{
@@ -164,7 +177,7 @@ public class OneMeasurementTimeSeries extends OneMeasurement
 	}
 
 	@Override
-	public String getSummary() {
+	public synchronized String getSummary() {
 		if (windowoperations==0)
 		{
 			return "";
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Write measurements in a form that can be merged with the results of other clients. Each line holds a metric,
+ * a measurement and a value, separated by tabs. Besides the scalar measurements, histogram and hdrhistogram
+ * measurements write their whole histogram as a "Histogram" measurement, compressed and base64 encoded, so that
+ * percentiles over several clients can be computed from their results (see
+ * {@link com.yahoo.ycsb.measurements.MeasurementsMerger} and {@link com.yahoo.ycsb.MergeResults}). They are exact
+ * for hdrhistogram measurements, and exact to the 1 ms bucket for histogram measurements.
+ */
+public class MergeableMeasurementsExporter implements MeasurementsExporter
+{
+  /**
+   * The measurement name of encoded histograms.
+   */
+  public static final String HISTOGRAM = "Histogram";
+
+  private BufferedWriter bw;
+
+  public MergeableMeasurementsExporter(OutputStream os)
+  {
+    this.bw = new BufferedWriter(new OutputStreamWriter(os));
+  }
+
+  public void write(String metric, String measurement, int i) throws IOException
+  {
+    writeLine(metric, measurement, Integer.toString(i));
+  }
+
+  public void write(String metric, String measurement, double d) throws IOException
+  {
+    writeLine(metric, measurement, Double.toString(d));
+  }
+
+  /**
+   * Write all the values of a histogram.
+   *
+   * @param metric Metric name, for example "READ".
+   * @param histogram The histogram to write.
+   * @throws IOException if writing failed
+   */
+  public void writeHistogram(String metric, Histogram histogram) throws IOException
+  {
+    writeLine(metric, HISTOGRAM, encode(histogram));
+  }
+
+  private void writeLine(String metric, String measurement, String value) throws IOException
+  {
+    bw.write(metric + "\t" + measurement + "\t" + value);
+    bw.newLine();
+  }
+
+  public void close() throws IOException
+  {
+    this.bw.close();
+  }
+
+  /**
+   * Compress a histogram and encode it in base64.
+   */
+  public static String encode(Histogram histogram)
+  {
+    ByteBuffer buf = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    int len = histogram.encodeIntoCompressedByteBuffer(buf);
+    return DatatypeConverter.printBase64Binary(Arrays.copyOf(buf.array(), len));
+  }
+
+  /**
+   * Decode a histogram written by {@link #encode(Histogram)}.
+   *
+   * @throws IOException if the string is not a valid encoded histogram
+   */
+  public static Histogram decode(String encoded) throws IOException
+  {
+    try
+    {
+      return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(DatatypeConverter.parseBase64Binary(encoded)), 0);
+    }
+    catch (DataFormatException e)
+    {
+      throw new IOException("Invalid encoded histogram: " + e.getMessage());
+    }
+    catch (RuntimeException e)
+    {
+      //malformed base64, or a buffer too short for the histogram it announces
+      throw new IOException("Invalid encoded histogram: " + e);
+    }
+  }
+}
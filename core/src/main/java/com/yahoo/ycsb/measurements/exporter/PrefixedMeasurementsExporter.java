@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.IOException;
+
+/**
+ * Puts a prefix in front of the metric names written to another exporter, e.g. to tell apart the measurements of
+ * the phases of a schedule. Closing it does not close the other exporter.
+ */
+public class PrefixedMeasurementsExporter implements MeasurementsExporter
+{
+
+  private MeasurementsExporter exporter;
+  private String prefix;
+
+  public PrefixedMeasurementsExporter(MeasurementsExporter exporter, String prefix)
+  {
+    this.exporter = exporter;
+    this.prefix = prefix;
+  }
+
+  public void write(String metric, String measurement, int i) throws IOException
+  {
+    exporter.write(prefix + metric, measurement, i);
+  }
+
+  public void write(String metric, String measurement, double d) throws IOException
+  {
+    exporter.write(prefix + metric, measurement, d);
+  }
+
+  public void close() throws IOException
+  {
+  }
+
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Decides when a client thread issues its next operation. Arrivals follow a fixed schedule that does not
+ * depend on how long operations take: if the thread falls behind, arrivals that are already due queue up
+ * and are issued back to back until the thread has caught up. Waiting is done with nanosecond resolution.
+ * <p>
+ * Subclasses only define the time between two arrivals. One scheduler is used by one thread at a time, except
+ * for a {@link ProfileArrivalScheduler}; {@link #getOutstanding()} may be called from any thread.
+ * </p>
+ */
+public abstract class ArrivalScheduler
+{
+	/**
+	 * The name of the property for the distribution of the time between two operations when the client is
+	 * throttled. Options are "constant" and "poisson".
+	 */
+	public static final String ARRIVAL_DISTRIBUTION_PROPERTY="arrivaldistribution";
+
+	/**
+	 * The default distribution of the time between two operations.
+	 */
+	public static final String ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT="constant";
+
+	/**
+	 * How the "target" throughput is shared among the client threads: "perthread" gives each thread its own
+	 * schedule with an equal share of it, so threads stalled on slow operations fall behind on their own; "global"
+	 * has all the threads take their arrivals from one schedule, so idle threads make up for the stalled ones and
+	 * the target is met whenever there is capacity. Always global with a rate profile.
+	 */
+	public static final String THROTTLE_PROPERTY="throttle";
+
+	public static final String THROTTLE_PROPERTY_DEFAULT="perthread";
+
+	/**
+	 * With a global throttle, the number of due arrivals that may queue up while the threads are behind. Arrivals
+	 * due beyond that are dropped and counted as missed permits, so the threads do not burst to catch up after a
+	 * stall. 0 (the default) queues them all; those issued late still count as missed (see {@link #getMissed()}).
+	 */
+	public static final String THROTTLE_BURST_PROPERTY="throttle.burst";
+
+	public static final String THROTTLE_BURST_PROPERTY_DEFAULT="0";
+
+	/**
+	 * Operations per nanosecond.
+	 */
+	final double _rate;
+
+	/**
+	 * The time of the next arrival, as returned by System.nanoTime(), or 0 before the first one.
+	 */
+	volatile long _next;
+
+	/**
+	 * The number of arrivals that were dropped, or issued more than one average time between arrivals late.
+	 */
+	final AtomicLong _missed=new AtomicLong();
+
+	/**
+	 * @param opspersecond the average number of operations per second to schedule
+	 */
+	protected ArrivalScheduler(double opspersecond)
+	{
+		_rate=opspersecond/1000000000.0;
+		_next=0;
+	}
+
+	/**
+	 * Create the scheduler selected by the properties.
+	 *
+	 * @param opspersecond the average number of operations per second to schedule
+	 */
+	public static ArrivalScheduler newScheduler(Properties p, double opspersecond)
+	{
+		String distribution=p.getProperty(ARRIVAL_DISTRIBUTION_PROPERTY,ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (distribution.compareTo("constant")==0)
+		{
+			return new ConstantArrivalScheduler(opspersecond);
+		}
+		else if (distribution.compareTo("poisson")==0)
+		{
+			return new PoissonArrivalScheduler(opspersecond);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown arrival distribution \""+distribution+"\"");
+		}
+	}
+
+	/**
+	 * Create the schedulers of the client threads. With a global throttle or a rate profile (see
+	 * {@link RateProfile}) all the threads share one scheduler; otherwise each thread gets its own, with an equal
+	 * share of the target.
+	 *
+	 * @param target the target throughput of all the threads together, in operations per second, or 0 for none
+	 * @return the scheduler of each thread, null for all of them if the threads are not throttled
+	 * @throws IllegalArgumentException if the arrival distribution or the rate profile is badly specified
+	 */
+	public static ArrivalScheduler[] newSchedulers(Properties p, double target, int threadcount)
+	{
+		ArrivalScheduler[] ret=new ArrivalScheduler[threadcount];
+		String throttle=p.getProperty(THROTTLE_PROPERTY,THROTTLE_PROPERTY_DEFAULT);
+		if ( (throttle.compareTo("perthread")!=0) && (throttle.compareTo("global")!=0) )
+		{
+			throw new IllegalArgumentException("Unknown throttle \""+throttle+"\"");
+		}
+		long burst=Long.parseLong(p.getProperty(THROTTLE_BURST_PROPERTY,THROTTLE_BURST_PROPERTY_DEFAULT));
+		if (burst<0)
+		{
+			throw new IllegalArgumentException(THROTTLE_BURST_PROPERTY+" must not be negative");
+		}
+
+		RateProfile profile=RateProfile.newProfile(p,target);
+		if ( (profile==null) && (target>0) && (throttle.compareTo("global")==0) )
+		{
+			profile=new PiecewiseRateProfile(Collections.singletonList(new double[] {0,target}),false);
+		}
+		if (profile!=null)
+		{
+			//check the distribution the same way as for a fixed target
+			newScheduler(p,1);
+			boolean poisson=p.getProperty(ARRIVAL_DISTRIBUTION_PROPERTY,ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT).compareTo("poisson")==0;
+			ArrivalScheduler shared=new ProfileArrivalScheduler(profile,poisson,burst);
+			for (int i=0; i<threadcount; i++)
+			{
+				ret[i]=shared;
+			}
+		}
+		else if (target>0)
+		{
+			for (int i=0; i<threadcount; i++)
+			{
+				ret[i]=newScheduler(p,target/threadcount);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the time until the arrival after the current one, in nanoseconds.
+	 */
+	protected abstract long nextInterarrivalNanos();
+
+	/**
+	 * Return the time until the first arrival, in nanoseconds. By default a random fraction of the average
+	 * time between arrivals, so that threads started together do not all hit the database at the same time.
+	 */
+	protected long firstArrivalNanos()
+	{
+		return (long)(Utils.random().nextDouble()/_rate);
+	}
+
+	/**
+	 * Wait until the next operation is due.
+	 *
+	 * @return the time (as returned by System.nanoTime()) at which the operation was scheduled to start
+	 */
+	public long acquire()
+	{
+		long now=System.nanoTime();
+		if (_next==0)
+		{
+			_next=now+firstArrivalNanos();
+		}
+		long intended=_next;
+		if (isLate(intended,now,_rate))
+		{
+			_missed.incrementAndGet();
+		}
+		parkUntil(intended,now);
+		_next=intended+nextInterarrivalNanos();
+		return intended;
+	}
+
+	/**
+	 * Return whether an arrival is issued more than one average time between arrivals after it was due, i.e.
+	 * whether the thread has fallen behind its schedule rather than merely being a little slow to pick it up.
+	 *
+	 * @param rate the current rate, in operations per nanosecond
+	 */
+	static boolean isLate(long intended, long now, double rate)
+	{
+		return (now-intended)*rate>1;
+	}
+
+	/**
+	 * Wait until a time, as returned by System.nanoTime().
+	 *
+	 * @param now the current time
+	 */
+	static void parkUntil(long time, long now)
+	{
+		while (now<time)
+		{
+			LockSupport.parkNanos(time-now);
+			now=System.nanoTime();
+		}
+	}
+
+	/**
+	 * Return the throughput this scheduler is aiming for at the moment, in operations per second.
+	 */
+	public double getTargetRate()
+	{
+		return _rate*1000000000.0;
+	}
+
+	/**
+	 * Return the number of arrivals that were missed: those dropped because too many were queued up (see
+	 * {@link #THROTTLE_BURST_PROPERTY}), and those issued more than one average time between arrivals after they
+	 * were due. Arrivals are never dropped by default, so only the late ones count then.
+	 */
+	public long getMissed()
+	{
+		return _missed.get();
+	}
+
+	/**
+	 * Return the number of arrivals that are due but have not been issued yet, i.e. the depth of the queue of
+	 * requests waiting for this thread. The arrivals are not kept individually; the depth is derived from how far
+	 * the thread is behind its schedule.
+	 */
+	public long getOutstanding()
+	{
+		long next=_next;
+		long now=System.nanoTime();
+		if ( (next==0) || (now<next) )
+		{
+			return 0;
+		}
+		return 1+(long)((now-next)*_rate);
+	}
+}
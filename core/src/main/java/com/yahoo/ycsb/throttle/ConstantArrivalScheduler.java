@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+/**
+ * Schedules operations at a constant rate.
+ */
+public class ConstantArrivalScheduler extends ArrivalScheduler
+{
+	final long _tick;
+
+	public ConstantArrivalScheduler(double opspersecond)
+	{
+		super(opspersecond);
+		_tick=(long)(1/_rate);
+	}
+
+	@Override
+	protected long nextInterarrivalNanos()
+	{
+		return _tick;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+import java.util.List;
+
+/**
+ * A target throughput given at points in time, held from one point to the next (a step profile) or changed
+ * linearly in between (a ramp). The rate of the first point holds before it, and that of the last after it.
+ */
+public class PiecewiseRateProfile extends RateProfile
+{
+	final double[] _times;
+	final double[] _rates;
+	final boolean _linear;
+
+	/**
+	 * @param points the seconds and ops/sec of each point, in increasing order of time
+	 * @param linear true to change the rate linearly from one point to the next, false to hold it
+	 */
+	public PiecewiseRateProfile(List<double[]> points, boolean linear)
+	{
+		if (points.isEmpty())
+		{
+			throw new IllegalArgumentException("A rate profile needs at least one point");
+		}
+		_times=new double[points.size()];
+		_rates=new double[points.size()];
+		for (int i=0; i<_times.length; i++)
+		{
+			_times[i]=points.get(i)[0];
+			_rates[i]=points.get(i)[1];
+			if ( (i>0) && (_times[i]<=_times[i-1]) )
+			{
+				throw new IllegalArgumentException("The points of a rate profile must be in increasing order of time");
+			}
+			if (_rates[i]<0)
+			{
+				throw new IllegalArgumentException("The rates of a rate profile must not be negative");
+			}
+		}
+		_linear=linear;
+	}
+
+	@Override
+	public double getRate(double seconds)
+	{
+		//the last point at or before the time
+		int lo=0;
+		int hi=_times.length-1;
+		if (seconds<_times[0])
+		{
+			return _rates[0];
+		}
+		while (lo<hi)
+		{
+			int mid=(lo+hi+1)/2;
+			if (_times[mid]<=seconds)
+			{
+				lo=mid;
+			}
+			else
+			{
+				hi=mid-1;
+			}
+		}
+		if ( !_linear || (lo==_times.length-1) )
+		{
+			return _rates[lo];
+		}
+		double f=(seconds-_times[lo])/(_times[lo+1]-_times[lo]);
+		return _rates[lo]+f*(_rates[lo+1]-_rates[lo]);
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Schedules operations as a Poisson process: the times between arrivals are exponentially distributed,
+ * so operations arrive independently of each other, as they would from a large population of users.
+ * The arrivals of several threads together again form a Poisson process, with the sum of their rates.
+ */
+public class PoissonArrivalScheduler extends ArrivalScheduler
+{
+	public PoissonArrivalScheduler(double opspersecond)
+	{
+		super(opspersecond);
+	}
+
+	@Override
+	protected long nextInterarrivalNanos()
+	{
+		//1-u is in (0,1], so the log is finite
+		return (long)(-Math.log(1.0-Utils.random().nextDouble())/_rate);
+	}
+
+	@Override
+	protected long firstArrivalNanos()
+	{
+		//the process is memoryless, so the wait for the first arrival is just another interarrival time
+		return nextInterarrivalNanos();
+	}
+}
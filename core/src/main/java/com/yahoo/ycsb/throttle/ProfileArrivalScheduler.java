@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A scheduler shared by all the client threads, whose rate follows a {@link RateProfile}. Each call to
+ * {@link #acquire()} claims the next arrival of the common schedule with a compare-and-set, so the threads
+ * together keep to the profile however the work spreads among them, and the profile can change the rate
+ * without telling each thread.
+ * <p>
+ * The time between two arrivals is taken from the rate of the profile at the first one, either constant or
+ * exponentially distributed. While the rate is 0 no arrivals are scheduled.
+ * </p>
+ * <p>
+ * The schedule works as a token bucket: arrivals that are due accumulate while the threads are busy, and are
+ * handed out back to back once a thread is free. If the bucket has a size, the arrivals due beyond it are dropped
+ * and counted as missed, rather than issued in a burst. Arrivals handed out late are counted as missed too.
+ * </p>
+ */
+public class ProfileArrivalScheduler extends ArrivalScheduler
+{
+	/**
+	 * How far the schedule moves on at a time while the profile has a rate of 0.
+	 */
+	static final long IDLE_NANOS=1000000;
+
+	final RateProfile _profile;
+	final boolean _poisson;
+
+	/**
+	 * The most arrivals that may be due at once, or 0 for no limit.
+	 */
+	final long _burst;
+
+	/**
+	 * The time the profile starts from, as returned by {@link #nanoTime()}, or 0 before the first arrival.
+	 */
+	final AtomicLong _start=new AtomicLong();
+
+	/**
+	 * The time of the next arrival not yet claimed by a thread, or 0 before the first one.
+	 */
+	final AtomicLong _nextarrival=new AtomicLong();
+
+	/**
+	 * @param poisson true for exponentially distributed times between arrivals, false for constant ones
+	 * @param burst the most arrivals that may be due at once, or 0 for no limit
+	 */
+	public ProfileArrivalScheduler(RateProfile profile, boolean poisson, long burst)
+	{
+		super(profile.getRate(0));
+		_profile=profile;
+		_poisson=poisson;
+		_burst=burst;
+	}
+
+	@Override
+	protected long nextInterarrivalNanos()
+	{
+		return interarrivalNanos(getTargetRate());
+	}
+
+	/**
+	 * @param opspersecond the current rate, more than 0
+	 */
+	long interarrivalNanos(double opspersecond)
+	{
+		double mean=1000000000.0/opspersecond;
+		if (_poisson)
+		{
+			return (long)(-mean*Math.log(1-Utils.random().nextDouble()));
+		}
+		return (long)mean;
+	}
+
+	/**
+	 * Return the current time in nanoseconds. System.nanoTime() unless replaced, e.g. by a test.
+	 */
+	long nanoTime()
+	{
+		return System.nanoTime();
+	}
+
+	/**
+	 * Wait until a time, as returned by {@link #nanoTime()}.
+	 */
+	void parkUntil(long time)
+	{
+		long now;
+		while ((now=nanoTime())<time)
+		{
+			LockSupport.parkNanos(time-now);
+		}
+	}
+
+	@Override
+	public long acquire()
+	{
+		long start=_start.get();
+		if (start==0)
+		{
+			_start.compareAndSet(0,nanoTime());
+			start=_start.get();
+		}
+		while (true)
+		{
+			//the idle period may have kept this thread waiting since the last pass
+			long now=nanoTime();
+			long next=_nextarrival.get();
+			long intended=(next==0) ? start : next;
+			double rate=_profile.getRate((intended-start)/1000000000.0);
+			if (rate<=0)
+			{
+				//go through the idle period without issuing anything
+				parkUntil(intended);
+				_nextarrival.compareAndSet(next,intended+IDLE_NANOS);
+				continue;
+			}
+			if ( (_burst>0) && (next!=0) )
+			{
+				long missed=(long)((now-intended)*rate/1000000000.0)+1-_burst;
+				if (missed>0)
+				{
+					//drop what does not fit in the bucket, and take the oldest arrival that does
+					if (_nextarrival.compareAndSet(next,intended+(long)(missed*1000000000.0/rate)))
+					{
+						_missed.addAndGet(missed);
+					}
+					continue;
+				}
+			}
+			if (_nextarrival.compareAndSet(next,intended+interarrivalNanos(rate)))
+			{
+				if (isLate(intended,now,rate/1000000000.0))
+				{
+					_missed.incrementAndGet();
+				}
+				parkUntil(intended);
+				return intended;
+			}
+		}
+	}
+
+	@Override
+	public long getOutstanding()
+	{
+		long next=_nextarrival.get();
+		long now=nanoTime();
+		if ( (next==0) || (now<next) )
+		{
+			return 0;
+		}
+		long ret=1+(long)((now-next)*getTargetRate()/1000000000.0);
+		return (_burst>0) ? Math.min(ret,_burst) : ret;
+	}
+
+	@Override
+	public double getTargetRate()
+	{
+		long start=_start.get();
+		if (start==0)
+		{
+			return _profile.getRate(0);
+		}
+		return _profile.getRate((nanoTime()-start)/1000000000.0);
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A target throughput that changes over the run, for traffic shaped like daily cycles, ramps or flash spikes
+ * rather than a fixed rate. Followed by a {@link ProfileArrivalScheduler} shared by all client threads.
+ */
+public abstract class RateProfile
+{
+	/**
+	 * The shape of the target throughput over time: "constant" (the default) for the fixed "target", "step" or
+	 * "ramp" through rateprofile.points, "csv" through the points in rateprofile.file, "sine" around "target",
+	 * or "spike" from "target" to rateprofile.spike.rate.
+	 */
+	public static final String RATE_PROFILE_PROPERTY="rateprofile";
+
+	public static final String RATE_PROFILE_PROPERTY_DEFAULT="constant";
+
+	/**
+	 * The points of a step or ramp profile, as comma separated seconds:ops/sec pairs, e.g. "0:1000,60:5000". A
+	 * step profile holds the rate of each point until the next one, a ramp changes it linearly in between. Both
+	 * hold the rate of the first point before it, and of the last one after it.
+	 */
+	public static final String RATE_PROFILE_POINTS_PROPERTY="rateprofile.points";
+
+	/**
+	 * A CSV file with one seconds,ops/sec point per line, followed like a ramp. Lines that do not start with a
+	 * number, such as a header, are skipped.
+	 */
+	public static final String RATE_PROFILE_FILE_PROPERTY="rateprofile.file";
+
+	/**
+	 * How far a sine profile swings above and below "target", in operations per second. Defaults to half of it.
+	 */
+	public static final String RATE_PROFILE_AMPLITUDE_PROPERTY="rateprofile.amplitude";
+
+	/**
+	 * The period of a sine profile, in seconds.
+	 */
+	public static final String RATE_PROFILE_PERIOD_PROPERTY="rateprofile.period";
+
+	public static final String RATE_PROFILE_PERIOD_PROPERTY_DEFAULT="3600";
+
+	/**
+	 * The target throughput during the spike of a spike profile, in operations per second.
+	 */
+	public static final String RATE_PROFILE_SPIKE_RATE_PROPERTY="rateprofile.spike.rate";
+
+	/**
+	 * When the spike of a spike profile starts, in seconds from the start of the run.
+	 */
+	public static final String RATE_PROFILE_SPIKE_START_PROPERTY="rateprofile.spike.start";
+
+	public static final String RATE_PROFILE_SPIKE_START_PROPERTY_DEFAULT="60";
+
+	/**
+	 * How long the spike of a spike profile lasts, in seconds.
+	 */
+	public static final String RATE_PROFILE_SPIKE_DURATION_PROPERTY="rateprofile.spike.duration";
+
+	public static final String RATE_PROFILE_SPIKE_DURATION_PROPERTY_DEFAULT="10";
+
+	/**
+	 * Return the target throughput at a time, in operations per second.
+	 *
+	 * @param seconds the time since the start of the run
+	 */
+	public abstract double getRate(double seconds);
+
+	/**
+	 * Create the profile selected by the properties.
+	 *
+	 * @param target the "target" throughput, in operations per second, or 0 if not set
+	 * @return the profile, or null for a constant target
+	 * @throws IllegalArgumentException if the profile is unknown or badly specified
+	 */
+	public static RateProfile newProfile(Properties p, double target)
+	{
+		String profile=p.getProperty(RATE_PROFILE_PROPERTY,RATE_PROFILE_PROPERTY_DEFAULT);
+		if (profile.compareTo("constant")==0)
+		{
+			return null;
+		}
+		else if ( (profile.compareTo("step")==0) || (profile.compareTo("ramp")==0) )
+		{
+			String points=p.getProperty(RATE_PROFILE_POINTS_PROPERTY);
+			if (points==null)
+			{
+				throw new IllegalArgumentException(RATE_PROFILE_POINTS_PROPERTY+" must be set for a "+profile+" profile");
+			}
+			List<double[]> parsed=new ArrayList<double[]>();
+			for (String point : points.split(","))
+			{
+				String[] pair=point.split(":");
+				if (pair.length!=2)
+				{
+					throw new IllegalArgumentException("Bad point \""+point+"\" in "+RATE_PROFILE_POINTS_PROPERTY+", must be seconds:ops/sec");
+				}
+				parsed.add(new double[] {Double.parseDouble(pair[0].trim()),Double.parseDouble(pair[1].trim())});
+			}
+			return new PiecewiseRateProfile(parsed,profile.compareTo("ramp")==0);
+		}
+		else if (profile.compareTo("csv")==0)
+		{
+			String file=p.getProperty(RATE_PROFILE_FILE_PROPERTY);
+			if (file==null)
+			{
+				throw new IllegalArgumentException(RATE_PROFILE_FILE_PROPERTY+" must be set for a csv profile");
+			}
+			try
+			{
+				return new PiecewiseRateProfile(readPoints(file),true);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalArgumentException("Could not read "+RATE_PROFILE_FILE_PROPERTY+": "+e.getMessage());
+			}
+		}
+		else if (profile.compareTo("sine")==0)
+		{
+			requireTarget(profile,target);
+			double amplitude=Double.parseDouble(p.getProperty(RATE_PROFILE_AMPLITUDE_PROPERTY,Double.toString(target/2)));
+			double period=Double.parseDouble(p.getProperty(RATE_PROFILE_PERIOD_PROPERTY,RATE_PROFILE_PERIOD_PROPERTY_DEFAULT));
+			if (period<=0)
+			{
+				throw new IllegalArgumentException(RATE_PROFILE_PERIOD_PROPERTY+" must be positive");
+			}
+			return new SineRateProfile(target,amplitude,period);
+		}
+		else if (profile.compareTo("spike")==0)
+		{
+			requireTarget(profile,target);
+			if (p.getProperty(RATE_PROFILE_SPIKE_RATE_PROPERTY)==null)
+			{
+				throw new IllegalArgumentException(RATE_PROFILE_SPIKE_RATE_PROPERTY+" must be set for a spike profile");
+			}
+			double rate=Double.parseDouble(p.getProperty(RATE_PROFILE_SPIKE_RATE_PROPERTY));
+			double start=Double.parseDouble(p.getProperty(RATE_PROFILE_SPIKE_START_PROPERTY,RATE_PROFILE_SPIKE_START_PROPERTY_DEFAULT));
+			double duration=Double.parseDouble(p.getProperty(RATE_PROFILE_SPIKE_DURATION_PROPERTY,RATE_PROFILE_SPIKE_DURATION_PROPERTY_DEFAULT));
+			List<double[]> points=new ArrayList<double[]>();
+			points.add(new double[] {0,target});
+			points.add(new double[] {start,rate});
+			points.add(new double[] {start+duration,target});
+			return new PiecewiseRateProfile(points,false);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown rate profile \""+profile+"\"");
+		}
+	}
+
+	static void requireTarget(String profile, double target)
+	{
+		if (target<=0)
+		{
+			throw new IllegalArgumentException("A "+profile+" profile needs a target");
+		}
+	}
+
+	/**
+	 * Read the seconds,ops/sec points of a CSV file.
+	 */
+	static List<double[]> readPoints(String file) throws IOException
+	{
+		List<double[]> ret=new ArrayList<double[]>();
+		BufferedReader in=new BufferedReader(new FileReader(file));
+		try
+		{
+			String line;
+			while ((line=in.readLine())!=null)
+			{
+				String[] fields=line.split(",");
+				try
+				{
+					if (fields.length>=2)
+					{
+						ret.add(new double[] {Double.parseDouble(fields[0].trim()),Double.parseDouble(fields[1].trim())});
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					//a header or a comment
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.throttle;
+
+/**
+ * A target throughput that swings around a base rate along a sine, like a daily traffic cycle. It never goes
+ * below 0.
+ */
+public class SineRateProfile extends RateProfile
+{
+	final double _base;
+	final double _amplitude;
+	final double _period;
+
+	/**
+	 * @param base the average rate, in operations per second
+	 * @param amplitude how far the rate swings above and below the base, in operations per second
+	 * @param period the length of one cycle, in seconds
+	 */
+	public SineRateProfile(double base, double amplitude, double period)
+	{
+		_base=base;
+		_amplitude=amplitude;
+		_period=period;
+	}
+
+	@Override
+	public double getRate(double seconds)
+	{
+		return Math.max(0,_base+_amplitude*Math.sin(2*Math.PI*seconds/_period));
+	}
+}
@@ -71,7 +71,7 @@ public class AvroWorkload extends CoreWorkload {
 
     for (int i=0; i<fieldcount; i++)
     {
-      String fieldkey="field"+i;
+      String fieldkey=fieldnames[i];
       SpecificRecord data = mAvroController.generateRecord(dbKey, fieldkey);
       values.put(fieldkey,data);
     }
@@ -87,7 +87,7 @@ public class AvroWorkload extends CoreWorkload {
   HashMap<String, SpecificRecord> buildAvroUpdate(String dbKey) {
     //update a random field
     HashMap<String, SpecificRecord> value = new HashMap<String, SpecificRecord>();
-    String fieldname = "field"+fieldchooser.nextString();
+    String fieldname = fieldnames[fieldchooser.nextInt()];
     SpecificRecord data = mAvroController.generateRecord(dbKey, fieldname);
     value.put(fieldname,data);
     return value;
@@ -96,8 +96,9 @@ public class AvroWorkload extends CoreWorkload {
   public boolean doInsert(DB db, Object threadstate)
   {
     final AvroDBClient adb = (AvroDBClient)db;
+    ThreadState state=(ThreadState)threadstate;
     int keynum=keysequence.nextInt();
-    String dbkey = buildKeyName(keynum);
+    String dbkey = buildKeyName(keynum,state);
     HashMap<String, SpecificRecord> values = buildAvroValues(dbkey);
     if (adb.insertAvro(table, dbkey, values) == 0) {
       return true;
@@ -106,33 +107,37 @@ public class AvroWorkload extends CoreWorkload {
     }
   }
 
-  public void doTransactionInsert(DB db)
+  public void doTransactionInsert(DB db, ThreadState state)
   {
     final AvroDBClient adb = (AvroDBClient)db;
     //choose the next key
     int keynum=transactioninsertkeysequence.nextInt();
 
-    String dbkey = buildKeyName(keynum);
+    try {
+      String dbkey = buildKeyName(keynum,state);
 
-    HashMap<String, SpecificRecord> values = buildAvroValues(dbkey);
+      HashMap<String, SpecificRecord> values = buildAvroValues(dbkey);
 
-    adb.insertAvro(table,dbkey,values);
+      adb.insertAvro(table,dbkey,values);
+    } finally {
+      transactioninsertkeysequence.acknowledge(keynum);
+    }
   }
 
-  public void doTransactionRead(DB db)
+  public void doTransactionRead(DB db, ThreadState state)
   {
     final AvroDBClient adb = (AvroDBClient)db;
     //choose a random key
     int keynum = nextKeynum();
 
-    String keyname = buildKeyName(keynum);
+    String keyname = buildKeyName(keynum,state);
 
     HashSet<String> fields=null;
 
     if (!readallfields)
     {
       //read a random field
-      String fieldname="field"+fieldchooser.nextString();
+      String fieldname=fieldnames[fieldchooser.nextInt()];
 
       fields=new HashSet<String>();
       fields.add(fieldname);
@@ -141,20 +146,20 @@ public class AvroWorkload extends CoreWorkload {
     adb.readAvro(table,keyname,fields,new HashMap<String,SpecificRecord>());
   }
 
-  public void doTransactionReadModifyWrite(DB db)
+  public void doTransactionReadModifyWrite(DB db, ThreadState state)
   {
     final AvroDBClient adb = (AvroDBClient)db;
     //choose a random key
     int keynum = nextKeynum();
 
-    String keyname = buildKeyName(keynum);
+    String keyname = buildKeyName(keynum,state);
 
     HashSet<String> fields=null;
 
     if (!readallfields)
     {
       //read a random field
-      String fieldname="field"+fieldchooser.nextString();
+      String fieldname=fieldnames[fieldchooser.nextInt()];
 
       fields=new HashSet<String>();
       fields.add(fieldname);
@@ -175,6 +180,8 @@ public class AvroWorkload extends CoreWorkload {
 
     //do the transaction
 
+    Measurements measurements=Measurements.getMeasurements();
+    long ist=measurements.getIntendedStartTimeNs();
     long st=System.nanoTime();
 
     adb.readAvro(table,keyname,fields,new HashMap<String,SpecificRecord>());
@@ -183,21 +190,26 @@ public class AvroWorkload extends CoreWorkload {
 
     long en=System.nanoTime();
 
-    Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
+    measurements.measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
+    if ( (ist==0) || (ist>st) )
+    {
+      ist=st;
+    }
+    measurements.measureIntended("READ-MODIFY-WRITE", (int)((en-ist)/1000));
   }
 
-  public void doTransactionScan(DB db)
+  public void doTransactionScan(DB db, ThreadState state)
   {
     throw new UnsupportedOperationException("Scan not yet implemented.");
   }
 
-  public void doTransactionUpdate(DB db)
+  public void doTransactionUpdate(DB db, ThreadState state)
   {
     final AvroDBClient adb = (AvroDBClient)db;
     //choose a random key
     int keynum = nextKeynum();
 
-    String keyname=buildKeyName(keynum);
+    String keyname=buildKeyName(keynum,state);
 
     HashMap<String, SpecificRecord> values;
 
@@ -19,10 +19,10 @@ package com.yahoo.ycsb.workloads;
 
 import java.util.Properties;
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
+import com.yahoo.ycsb.generator.AliasGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
-import com.yahoo.ycsb.generator.DiscreteGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
@@ -34,6 +34,7 @@ import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Vector;
@@ -58,6 +59,11 @@ import java.util.Vector;
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>insertkeyblocksize</b>: how many keys for inserts in the transaction phase each thread takes from the key sequence at a time (default: 1)
+ * <LI><b>valuesource</b>: how field values are generated, "random" bytes or slices of a "pool" of pre-generated bytes (default: random)
+ * <LI><b>fieldcompressibility</b>: if set, the fraction of each field value that a compressor can remove, from 0 to 1 (default: unset, random values)
+ * <LI><b>recyclevalues</b>: should each client thread reuse its value maps, field values and result maps from one operation to the next (default: false)
+ * <LI><b>batchsize</b>: how many records each client thread hands to the DB in one batch during the load phase (default: 1)
  * </ul> 
  */
 public class CoreWorkload extends Workload
@@ -258,15 +264,168 @@ public class CoreWorkload extends Workload
    */
   public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
 	
+	/**
+	 * The name of the property for the number of keys that each client thread takes at a time for the inserts of the
+	 * transaction phase. Taking more than one avoids contention on the key sequence when there are many inserting
+	 * threads, but the keys left in a thread's block when it stops are never inserted, and reads may pick them at
+	 * the end of the run.
+	 */
+	public static final String INSERT_KEY_BLOCK_SIZE_PROPERTY="insertkeyblocksize";
+
+	/**
+	 * Default number of keys taken at a time.
+	 */
+	public static final String INSERT_KEY_BLOCK_SIZE_PROPERTY_DEFAULT="1";
+
+	/**
+	 * The name of the property for how field values are generated. Options are "random", for random bytes generated
+	 * as they are written, and "pool", for slices of a slab of random bytes generated up front (see
+	 * {@link ValuePool}), which is much cheaper for the client.
+	 */
+	public static final String VALUE_SOURCE_PROPERTY="valuesource";
+
+	/**
+	 * Default value source.
+	 */
+	public static final String VALUE_SOURCE_PROPERTY_DEFAULT="random";
+
+	/**
+	 * The name of the property for the size in bytes of the value pool, if valuesource is "pool".
+	 */
+	public static final String VALUE_POOL_SIZE_PROPERTY="valuepoolsize";
+
+	/**
+	 * Default value pool size, 64 MB.
+	 */
+	public static final String VALUE_POOL_SIZE_PROPERTY_DEFAULT="67108864";
+
+	/**
+	 * The name of the property for the entropy of the bytes in the value pool, in bits per byte from 1 to 8. Lower
+	 * values make the data more compressible.
+	 */
+	public static final String VALUE_ENTROPY_PROPERTY="valueentropy";
+
+	/**
+	 * Default value entropy, the same as for random values.
+	 */
+	public static final String VALUE_ENTROPY_PROPERTY_DEFAULT="5";
+
+	/**
+	 * The name of the property for the compressibility of field values, the fraction of each value that a compressor
+	 * can remove, from 0 to 1 (see {@link CompressibleByteIterator}). If not set, values are random, and only
+	 * compress because they are printable. Cannot be combined with the "pool" value source.
+	 */
+	public static final String FIELD_COMPRESSIBILITY_PROPERTY="fieldcompressibility";
+
+	/**
+	 * The compressibility of field values, or a negative number if not set.
+	 */
+	double fieldcompressibility=-1;
+
+	/**
+	 * The pool of values to take field values from, or null for random values.
+	 */
+	ValuePool valuepool;
+
+	/**
+	 * The name of the property for deciding whether each client thread reuses the maps and field values it hands to
+	 * the DB, rather than allocating new ones for every operation. This takes garbage collection out of the client's
+	 * own latencies, but is only safe for DB classes that do not hold on to values or results after an operation
+	 * returns, so it cannot be combined with asynchronous DBs.
+	 */
+	public static final String RECYCLE_VALUES_PROPERTY="recyclevalues";
+
+	/**
+	 * Default for recycling values.
+	 */
+	public static final String RECYCLE_VALUES_PROPERTY_DEFAULT="false";
+
+	boolean recyclevalues;
+
+	/**
+	 * The name of the property for the number of records each client thread inserts in one batch during the load
+	 * phase. Records are buffered and handed to {@link DB#batchInsert}, and the last, partial batch of a thread is
+	 * inserted when the thread is cleaned up.
+	 */
+	public static final String BATCH_SIZE_PROPERTY="batchsize";
+
+	/**
+	 * Default batch size, inserting records one at a time.
+	 */
+	public static final String BATCH_SIZE_PROPERTY_DEFAULT="1";
+
+	int batchsize;
+
+	/**
+	 * The per-thread state of the workload, created by initThread().
+	 */
+	public static class ThreadState
+	{
+		/**
+		 * Builds key names, holding the key prefix between calls.
+		 */
+		final StringBuilder keybuilder=new StringBuilder(KEY_PREFIX);
+
+		/**
+		 * The maps, field values and field sets reused between operations, only used if values are recycled.
+		 */
+		HashMap<String,ByteIterator> values;
+		ByteIterator[] fieldvalues;
+		HashMap<String,ByteIterator> result;
+		Vector<HashMap<String,ByteIterator>> scanresult;
+		HashSet<String> fields;
+
+		/**
+		 * The records buffered for the next batch insert, only used if the batch size is more than one.
+		 */
+		ArrayList<String> batchkeys;
+		ArrayList<HashMap<String,ByteIterator>> batchvalues;
+	}
+
+	static final String KEY_PREFIX="user";
+
+	/**
+	 * The field names, "field0" to "field"+(fieldcount-1).
+	 */
+	String[] fieldnames;
+
 	IntegerGenerator keysequence;
 
-	DiscreteGenerator operationchooser;
+	/**
+	 * The kinds of transaction operations.
+	 */
+	public enum Operation
+	{
+		READ, UPDATE, INSERT, SCAN, READMODIFYWRITE
+	}
+
+	static final Operation[] OPERATIONS=Operation.values();
+
+	/**
+	 * Chooses the ordinal of the next transaction operation; null if all the proportions are zero, which is fine
+	 * for loading.
+	 */
+	AliasGenerator operationchooser;
+
+	/**
+	 * The properties passed to init(), which phases are checked against.
+	 */
+	Properties initprops;
+
+	/**
+	 * The properties that a phase of a schedule must not change, see {@link #initPhase(Properties)}.
+	 */
+	static final String[] PHASE_FIXED_PROPERTIES={TABLENAME_PROPERTY,FIELD_COUNT_PROPERTY,Client.RECORD_COUNT_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY,INSERT_ORDER_PROPERTY};
 
 	IntegerGenerator keychooser;
 
-	Generator fieldchooser;
+	IntegerGenerator fieldchooser;
 
-	CounterGenerator transactioninsertkeysequence;
+	/**
+	 * The keys for inserts in the transaction phase. Reads only choose keys up to its high-water mark, the last
+	 * key below which all inserts have completed.
+	 */
+	AcknowledgedCounterGenerator transactioninsertkeysequence;
 	
 	IntegerGenerator scanlength;
 	
@@ -303,16 +462,49 @@ public class CoreWorkload extends Workload
 	 */
 	public void init(Properties p) throws WorkloadException
 	{
+		initprops=p;
+
 		table = p.getProperty(TABLENAME_PROPERTY,TABLENAME_PROPERTY_DEFAULT);
 		
 		fieldcount=Integer.parseInt(p.getProperty(FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
+		fieldnames=new String[fieldcount];
+		for (int i=0; i<fieldcount; i++)
+		{
+			fieldnames[i]=("field"+i).intern();
+		}
 		fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
+
+		String valuesource=p.getProperty(VALUE_SOURCE_PROPERTY,VALUE_SOURCE_PROPERTY_DEFAULT);
+		if (valuesource.compareTo("pool")==0)
+		{
+			int poolsize=Integer.parseInt(p.getProperty(VALUE_POOL_SIZE_PROPERTY,VALUE_POOL_SIZE_PROPERTY_DEFAULT));
+			int entropy=Integer.parseInt(p.getProperty(VALUE_ENTROPY_PROPERTY,VALUE_ENTROPY_PROPERTY_DEFAULT));
+			int fieldlength=Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT));
+			if ( (entropy<1) || (entropy>8) )
+			{
+				throw new WorkloadException(VALUE_ENTROPY_PROPERTY+" must be between 1 and 8");
+			}
+			valuepool=new ValuePool(Math.max(poolsize,2*fieldlength),entropy,Utils.random());
+		}
+		else if (valuesource.compareTo("random")!=0)
+		{
+			throw new WorkloadException("Unknown value source \""+valuesource+"\"");
+		}
+
+		if (p.getProperty(FIELD_COMPRESSIBILITY_PROPERTY)!=null)
+		{
+			fieldcompressibility=Double.parseDouble(p.getProperty(FIELD_COMPRESSIBILITY_PROPERTY));
+			if ( (fieldcompressibility<0) || (fieldcompressibility>1) )
+			{
+				throw new WorkloadException(FIELD_COMPRESSIBILITY_PROPERTY+" must be between 0 and 1");
+			}
+			if (valuepool!=null)
+			{
+				throw new WorkloadException(FIELD_COMPRESSIBILITY_PROPERTY+" cannot be used with "+VALUE_SOURCE_PROPERTY+"=pool");
+			}
+		}
 		
-		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
-		double updateproportion=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
-		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
-		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
 		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY));
 		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
@@ -322,6 +514,36 @@ public class CoreWorkload extends Workload
 		
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
+
+		recyclevalues=Boolean.parseBoolean(p.getProperty(RECYCLE_VALUES_PROPERTY,RECYCLE_VALUES_PROPERTY_DEFAULT));
+		if (recyclevalues)
+		{
+			//an asynchronous DB may still be using the values of one operation when the next one is built
+			boolean async=Integer.parseInt(p.getProperty(Client.INFLIGHT_PROPERTY,Client.INFLIGHT_PROPERTY_DEFAULT))>1;
+			try
+			{
+				async|=DBFactory.isAsyncDB(p.getProperty("db","com.yahoo.ycsb.BasicDB"));
+			}
+			catch (UnknownDBException e)
+			{
+				//reported when the client creates the DB
+			}
+			if (async)
+			{
+				throw new WorkloadException(RECYCLE_VALUES_PROPERTY+" cannot be used with asynchronous DBs or "+Client.INFLIGHT_PROPERTY+" > 1");
+			}
+		}
+
+		batchsize=Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY,BATCH_SIZE_PROPERTY_DEFAULT));
+		if (batchsize<1)
+		{
+			throw new WorkloadException(BATCH_SIZE_PROPERTY+" must be at least 1");
+		}
+		if ( (batchsize>1) && recyclevalues )
+		{
+			//the buffered records of a batch would all share one recycled value map
+			throw new WorkloadException(BATCH_SIZE_PROPERTY+" > 1 cannot be used with "+RECYCLE_VALUES_PROPERTY);
+		}
 		
 		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
 		{
@@ -341,33 +563,16 @@ public class CoreWorkload extends Workload
 		}
 
 		keysequence=new CounterGenerator(insertstart);
-		operationchooser=new DiscreteGenerator();
-		if (readproportion>0)
-		{
-			operationchooser.addValue(readproportion,"READ");
-		}
-
-		if (updateproportion>0)
-		{
-			operationchooser.addValue(updateproportion,"UPDATE");
-		}
+		operationchooser=newOperationChooser(p);
 
-		if (insertproportion>0)
+		int insertkeyblocksize=Integer.parseInt(p.getProperty(INSERT_KEY_BLOCK_SIZE_PROPERTY,INSERT_KEY_BLOCK_SIZE_PROPERTY_DEFAULT));
+		if (insertkeyblocksize<1)
 		{
-			operationchooser.addValue(insertproportion,"INSERT");
+			throw new WorkloadException(INSERT_KEY_BLOCK_SIZE_PROPERTY+" must be at least 1");
 		}
-		
-		if (scanproportion>0)
-		{
-			operationchooser.addValue(scanproportion,"SCAN");
-		}
-		
-		if (readmodifywriteproportion>0)
-		{
-			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
-		}
-
-		transactioninsertkeysequence=new CounterGenerator(recordcount);
+		int threadcount=Integer.parseInt(p.getProperty("threadcount","1"));
+		int inflight=Integer.parseInt(p.getProperty(Client.INFLIGHT_PROPERTY,Client.INFLIGHT_PROPERTY_DEFAULT));
+		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount,insertkeyblocksize,threadcount*Math.max(inflight,1)*insertkeyblocksize);
 		if (requestdistrib.compareTo("uniform")==0)
 		{
 			keychooser=new UniformIntegerGenerator(0,recordcount-1);
@@ -420,33 +625,223 @@ public class CoreWorkload extends Workload
 		}
 	}
 
+	/**
+	 * Choose the operations in the proportions given by the properties, or return null if they are all 0.
+	 */
+	static AliasGenerator newOperationChooser(Properties p)
+	{
+		double[] proportions=new double[OPERATIONS.length];
+		proportions[Operation.READ.ordinal()]=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
+		proportions[Operation.UPDATE.ordinal()]=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
+		proportions[Operation.INSERT.ordinal()]=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
+		proportions[Operation.SCAN.ordinal()]=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
+		proportions[Operation.READMODIFYWRITE.ordinal()]=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+		double sum=0;
+		for (double proportion : proportions)
+		{
+			sum+=proportion;
+		}
+		if (sum>0)
+		{
+			return new AliasGenerator(proportions);
+		}
+		return null;
+	}
+
+	/**
+	 * Take the operation mix, readallfields and writeallfields from the properties of the next phase. Everything
+	 * else carries over from init(), so the key generators are not rebuilt, and inserts continue where the
+	 * previous phases stopped. The properties that shape the key space must stay the same.
+	 */
+	@Override
+	public void initPhase(Properties p) throws WorkloadException
+	{
+		for (String prop : PHASE_FIXED_PROPERTIES)
+		{
+			String value=p.getProperty(prop,"");
+			if (value.compareTo(initprops.getProperty(prop,""))!=0)
+			{
+				throw new WorkloadException(prop+" cannot change from one phase to the next");
+			}
+		}
+		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
+		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
+		operationchooser=newOperationChooser(p);
+	}
+
+	/**
+	 * Initialize the state of one client thread: a key builder, and the maps and field values to reuse if values
+	 * are recycled.
+	 */
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		ThreadState state=new ThreadState();
+		if (recyclevalues)
+		{
+			state.values=new HashMap<String,ByteIterator>();
+			state.fieldvalues=new ByteIterator[fieldcount];
+			for (int i=0; i<fieldcount; i++)
+			{
+				state.fieldvalues[i]=fieldValue(null);
+			}
+			state.result=new HashMap<String,ByteIterator>();
+			state.scanresult=new Vector<HashMap<String,ByteIterator>>();
+			state.fields=new HashSet<String>();
+		}
+		if (batchsize>1)
+		{
+			state.batchkeys=new ArrayList<String>(batchsize);
+			state.batchvalues=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		}
+		return state;
+	}
+
 	public String buildKeyName(long keynum) {
+		return buildKeyName(keynum,null);
+	}
+
+	/**
+	 * Build the key name using the key builder of the given thread state, or a new one if the state is null.
+	 */
+	public String buildKeyName(long keynum, ThreadState state) {
  		if (!orderedinserts)
  		{
  			keynum=Utils.hash(keynum);
  		}
-		return "user"+keynum;
+		if (state==null)
+		{
+			return KEY_PREFIX+keynum;
+		}
+		StringBuilder keybuilder=state.keybuilder;
+		keybuilder.setLength(KEY_PREFIX.length());
+		return keybuilder.append(keynum).toString();
+	}
+
+	/**
+	 * Generate the value of one field.
+	 *
+	 * @param recycled a value to reuse, previously returned by this method, or null to create a new one
+	 */
+	ByteIterator fieldValue(ByteIterator recycled) {
+		int len=fieldlengthgenerator.nextInt();
+		if (valuepool!=null)
+		{
+			if (recycled==null)
+			{
+				return valuepool.newValue(len);
+			}
+			valuepool.reset((ByteArrayByteIterator)recycled,len);
+			return recycled;
+		}
+
+		if (fieldcompressibility>=0)
+		{
+			if (recycled==null)
+			{
+				return new CompressibleByteIterator(len,fieldcompressibility);
+			}
+			((CompressibleByteIterator)recycled).reset(len);
+			return recycled;
+		}
+
+		if (recycled==null)
+		{
+			return new RandomByteIterator(len);
+		}
+		((RandomByteIterator)recycled).reset(len);
+		return recycled;
 	}
+
 	HashMap<String, ByteIterator> buildValues() {
- 		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		return buildValues(null);
+	}
 
- 		for (int i=0; i<fieldcount; i++)
- 		{
- 			String fieldkey="field"+i;
- 			ByteIterator data= new RandomByteIterator(fieldlengthgenerator.nextInt());
- 			values.put(fieldkey,data);
- 		}
+	HashMap<String, ByteIterator> buildValues(ThreadState state) {
+		if ( (state==null) || (state.values==null) )
+		{
+			HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+
+			for (int i=0; i<fieldcount; i++)
+			{
+				ByteIterator data=fieldValue(null);
+				values.put(fieldnames[i],data);
+			}
+			return values;
+		}
+
+		HashMap<String,ByteIterator> values=state.values;
+		values.clear();
+		for (int i=0; i<fieldcount; i++)
+		{
+			values.put(fieldnames[i],fieldValue(state.fieldvalues[i]));
+		}
 		return values;
 	}
+
 	HashMap<String, ByteIterator> buildUpdate() {
+		return buildUpdate(null);
+	}
+
+	HashMap<String, ByteIterator> buildUpdate(ThreadState state) {
 		//update a random field
-		HashMap<String, ByteIterator> values=new HashMap<String,ByteIterator>();
-		String fieldname="field"+fieldchooser.nextString();
-		ByteIterator data = new RandomByteIterator(fieldlengthgenerator.nextInt());
-		values.put(fieldname,data);
+		int field=fieldchooser.nextInt();
+		if ( (state==null) || (state.values==null) )
+		{
+			HashMap<String, ByteIterator> values=new HashMap<String,ByteIterator>();
+			ByteIterator data = fieldValue(null);
+			values.put(fieldnames[field],data);
+			return values;
+		}
+
+		HashMap<String,ByteIterator> values=state.values;
+		values.clear();
+		values.put(fieldnames[field],fieldValue(state.fieldvalues[field]));
 		return values;
 	}
 
+	/**
+	 * Return the set of fields to read, or null to read all of them.
+	 */
+	HashSet<String> buildReadFields(ThreadState state) {
+		if (readallfields)
+		{
+			return null;
+		}
+
+		//read a random field
+		String fieldname=fieldnames[fieldchooser.nextInt()];
+		HashSet<String> fields;
+		if ( (state==null) || (state.fields==null) )
+		{
+			fields=new HashSet<String>();
+		}
+		else
+		{
+			fields=state.fields;
+			fields.clear();
+		}
+		fields.add(fieldname);
+		return fields;
+	}
+
+	HashMap<String,ByteIterator> buildResult(ThreadState state) {
+		if ( (state==null) || (state.result==null) )
+		{
+			return new HashMap<String,ByteIterator>();
+		}
+		state.result.clear();
+		return state.result;
+	}
+
+	Vector<HashMap<String,ByteIterator>> buildScanResult(ThreadState state) {
+		if ( (state==null) || (state.scanresult==null) )
+		{
+			return new Vector<HashMap<String,ByteIterator>>();
+		}
+		state.scanresult.clear();
+		return state.scanresult;
+	}
+
 	/**
 	 * Do one insert operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -455,15 +850,41 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doInsert(DB db, Object threadstate)
 	{
+		ThreadState state=(ThreadState)threadstate;
 		int keynum=keysequence.nextInt();
-		String dbkey = buildKeyName(keynum);
-		HashMap<String, ByteIterator> values = buildValues();
+		String dbkey = buildKeyName(keynum,state);
+		HashMap<String, ByteIterator> values = buildValues(state);
+		if (batchsize>1)
+		{
+			state.batchkeys.add(dbkey);
+			state.batchvalues.add(values);
+			if (state.batchkeys.size()<batchsize)
+			{
+				return true;
+			}
+			return flushBatch(db,state);
+		}
 		if (db.insert(table,dbkey,values) == 0)
 			return true;
 		else
 			return false;
 	}
 
+	/**
+	 * Insert the records buffered by this thread, if any, as one batch.
+	 */
+	boolean flushBatch(DB db, ThreadState state)
+	{
+		if ( (state.batchkeys==null) || state.batchkeys.isEmpty() )
+		{
+			return true;
+		}
+		int res=db.batchInsert(table,state.batchkeys,state.batchvalues);
+		state.batchkeys.clear();
+		state.batchvalues.clear();
+		return res==0;
+	}
+
 	/**
 	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -472,27 +893,30 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doTransaction(DB db, Object threadstate)
 	{
-		String op=operationchooser.nextString();
-
-		if (op.compareTo("READ")==0)
-		{
-			doTransactionRead(db);
-		}
-		else if (op.compareTo("UPDATE")==0)
-		{
-			doTransactionUpdate(db);
-		}
-		else if (op.compareTo("INSERT")==0)
+		ThreadState state=(ThreadState)threadstate;
+		if (operationchooser==null)
 		{
-			doTransactionInsert(db);
-		}
-		else if (op.compareTo("SCAN")==0)
-		{
-			doTransactionScan(db);
+			System.err.println("No transactions to do, all operation proportions are zero");
+			return false;
 		}
-		else
+
+		switch (OPERATIONS[operationchooser.nextInt()])
 		{
-			doTransactionReadModifyWrite(db);
+		case READ:
+			doTransactionRead(db,state);
+			break;
+		case UPDATE:
+			doTransactionUpdate(db,state);
+			break;
+		case INSERT:
+			doTransactionInsert(db,state);
+			break;
+		case SCAN:
+			doTransactionScan(db,state);
+			break;
+		default:
+			doTransactionReadModifyWrite(db,state);
+			break;
 		}
 		
 		return true;
@@ -516,126 +940,178 @@ public class CoreWorkload extends Workload
         return keynum;
     }
 
+	/**
+	 * Kept for subclasses written against the old signature; {@link #doTransaction(DB, Object)} calls
+	 * {@link #doTransactionRead(DB, ThreadState)}, which is the one to override. Nothing is reused between calls.
+	 */
 	public void doTransactionRead(DB db)
+	{
+		doTransactionRead(db,null);
+	}
+
+	public void doTransactionRead(DB db, ThreadState state)
 	{
 		//choose a random key
 		int keynum = nextKeynum();
 		
-		String keyname = buildKeyName(keynum);
+		String keyname = buildKeyName(keynum,state);
 		
-		HashSet<String> fields=null;
+		HashSet<String> fields=buildReadFields(state);
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
-
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		db.read(table,keyname,fields,buildResult(state));
 	}
 	
+	/**
+	 * Kept for subclasses written against the old signature; {@link #doTransaction(DB, Object)} calls
+	 * {@link #doTransactionReadModifyWrite(DB, ThreadState)}, which is the one to override. Nothing is reused between calls.
+	 */
 	public void doTransactionReadModifyWrite(DB db)
+	{
+		doTransactionReadModifyWrite(db,null);
+	}
+
+	public void doTransactionReadModifyWrite(DB db, ThreadState state)
 	{
 		//choose a random key
 		int keynum = nextKeynum();
 
-		String keyname = buildKeyName(keynum);
-
-		HashSet<String> fields=null;
+		String keyname = buildKeyName(keynum,state);
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		HashSet<String> fields=buildReadFields(state);
 		
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = buildValues(state);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = buildUpdate(state);
 		}
 
 		//do the transaction
-		
+
+		Measurements measurements=Measurements.getMeasurements();
+		long ist=measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		db.read(table,keyname,fields,buildResult(state));
 		
 		db.update(table,keyname,values);
 
 		long en=System.nanoTime();
 		
-		Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
+		measurements.measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
+		if ( (ist==0) || (ist>st) )
+		{
+			ist=st;
+		}
+		measurements.measureIntended("READ-MODIFY-WRITE", (int)((en-ist)/1000));
 	}
 	
+	/**
+	 * Kept for subclasses written against the old signature; {@link #doTransaction(DB, Object)} calls
+	 * {@link #doTransactionScan(DB, ThreadState)}, which is the one to override. Nothing is reused between calls.
+	 */
 	public void doTransactionScan(DB db)
+	{
+		doTransactionScan(db,null);
+	}
+
+	public void doTransactionScan(DB db, ThreadState state)
 	{
 		//choose a random key
 		int keynum = nextKeynum();
 
-		String startkeyname = buildKeyName(keynum);
+		String startkeyname = buildKeyName(keynum,state);
 		
 		//choose a random scan length
 		int len=scanlength.nextInt();
 
-		HashSet<String> fields=null;
+		HashSet<String> fields=buildReadFields(state);
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
-
-		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>());
+		db.scan(table,startkeyname,len,fields,buildScanResult(state));
 	}
 
+	/**
+	 * Kept for subclasses written against the old signature; {@link #doTransaction(DB, Object)} calls
+	 * {@link #doTransactionUpdate(DB, ThreadState)}, which is the one to override. Nothing is reused between calls.
+	 */
 	public void doTransactionUpdate(DB db)
+	{
+		doTransactionUpdate(db,null);
+	}
+
+	public void doTransactionUpdate(DB db, ThreadState state)
 	{
 		//choose a random key
 		int keynum = nextKeynum();
 
-		String keyname=buildKeyName(keynum);
+		String keyname=buildKeyName(keynum,state);
 
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = buildValues(state);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = buildUpdate(state);
 		}
 
 		db.update(table,keyname,values);
 	}
 
+	/**
+	 * Kept for subclasses written against the old signature; {@link #doTransaction(DB, Object)} calls
+	 * {@link #doTransactionInsert(DB, ThreadState)}, which is the one to override. Nothing is reused between calls.
+	 */
 	public void doTransactionInsert(DB db)
+	{
+		doTransactionInsert(db,null);
+	}
+
+	public void doTransactionInsert(DB db, ThreadState state)
 	{
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		final int keynum=transactioninsertkeysequence.nextInt();
 
-		String dbkey = buildKeyName(keynum);
+		//acknowledged once the insert has completed, which for an asynchronous DB is after db.insert returns.
+		//also acknowledged if the insert failed, or the high-water mark would be stuck before this key
+		Runnable acknowledge=new Runnable()
+		{
+			public void run()
+			{
+				transactioninsertkeysequence.acknowledge(keynum);
+			}
+		};
+		String dbkey;
+		HashMap<String, ByteIterator> values;
+		try
+		{
+			dbkey = buildKeyName(keynum,state);
+			values = buildValues(state);
+		}
+		catch (RuntimeException e)
+		{
+			acknowledge.run();
+			throw e;
+		}
+		db.insert(table,dbkey,values,acknowledge);
+	}
 
-		HashMap<String, ByteIterator> values = buildValues();
-		db.insert(table,dbkey,values);
+	/**
+	 * Insert the last, partial batch of this thread, and give up the keys it has taken for inserts but not used.
+	 */
+	public void cleanupThread(DB db, Object threadstate) throws WorkloadException
+	{
+		flushBatch(db,(ThreadState)threadstate);
+		transactioninsertkeysequence.releaseBlock();
 	}
 }
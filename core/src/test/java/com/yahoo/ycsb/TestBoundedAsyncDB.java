@@ -0,0 +1,99 @@
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestBoundedAsyncDB {
+  /** Holds on to every callback until it is completed explicitly. */
+  static class PendingDB extends AsyncDB {
+    final ArrayList<Callback> pending = new ArrayList<Callback>();
+    boolean cleanedup = false;
+
+    synchronized void completeAll() {
+      for (Callback c : pending) {
+        c.complete(0);
+      }
+      pending.clear();
+    }
+
+    public synchronized void cleanup() {
+      cleanedup = true;
+    }
+
+    public synchronized void read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result, Callback callback) {
+      pending.add(callback);
+    }
+
+    public synchronized void scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result, Callback callback) {
+      pending.add(callback);
+    }
+
+    public synchronized void update(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+      pending.add(callback);
+    }
+
+    public synchronized void insert(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+      pending.add(callback);
+    }
+
+    public synchronized void delete(String table, String key, Callback callback) {
+      pending.add(callback);
+    }
+  }
+
+  @Test
+  public void testInFlightIsBounded() throws Exception {
+    final PendingDB async = new PendingDB();
+    final BoundedAsyncDB db = new BoundedAsyncDB(async, 2);
+    assertEquals(0, db.read("t", "k1", null, null));
+    assertEquals(0, db.delete("t", "k2"));
+    assertEquals(2, db.getInFlight());
+
+    Thread submitter = new Thread() {
+      public void run() {
+        db.delete("t", "k3");
+      }
+    };
+    submitter.start();
+    submitter.join(200);
+    assertTrue("third operation must wait for a free slot", submitter.isAlive());
+
+    async.completeAll();
+    submitter.join();
+    assertEquals(1, db.getInFlight());
+
+    async.completeAll();
+    db.cleanup();
+    assertEquals(0, db.getInFlight());
+    assertTrue(async.cleanedup);
+  }
+
+  @Test
+  public void testFailedSubmitFreesItsSlot() {
+    BoundedAsyncDB db = new BoundedAsyncDB(new PendingDB() {
+      public void update(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+        throw new IllegalStateException("not connected");
+      }
+    }, 1);
+    try {
+      db.update("t", "k", new HashMap<String, ByteIterator>());
+      fail("the failure to submit must reach the caller");
+    } catch (IllegalStateException e) {
+      //expected
+    }
+    assertEquals(0, db.getInFlight());
+  }
+
+  @Test
+  public void testAdapterCompletesInline() {
+    BoundedAsyncDB db = new BoundedAsyncDB(new AsyncDBAdapter(new BasicDB()), 4);
+    db.getProperties().setProperty("basicdb.verbose", "false");
+    assertEquals(0, db.insert("t", "k", new HashMap<String, ByteIterator>()));
+    assertEquals(0, db.getInFlight());
+  }
+}
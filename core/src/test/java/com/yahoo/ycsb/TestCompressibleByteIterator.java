@@ -0,0 +1,39 @@
+package com.yahoo.ycsb;
+
+import java.util.zip.Deflater;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCompressibleByteIterator {
+  static double compressedFraction(byte[] data) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] out = new byte[data.length * 2];
+    int size = deflater.deflate(out);
+    deflater.end();
+    return (double) size / data.length;
+  }
+
+  @Test
+  public void testCompressibility() {
+    //deflate also entropy codes the 64 character alphabet, to about 6/8
+    double[] targets = {0, 0.5, 0.9};
+    for (double c : targets) {
+      byte[] data = new CompressibleByteIterator(100000, c).toArray();
+      assertEquals(100000, data.length);
+      assertEquals("compressibility " + c, (1 - c) * 0.75, compressedFraction(data), 0.08);
+    }
+  }
+
+  @Test
+  public void testNextBufMatchesLength() {
+    CompressibleByteIterator it = new CompressibleByteIterator(300, 0.5);
+    byte[] buf = new byte[1000];
+    assertEquals(300, it.nextBuf(buf, 0));
+    assertFalse(it.hasNext());
+    it.reset(5);
+    assertEquals(5, it.toArray().length);
+  }
+}
@@ -0,0 +1,49 @@
+package com.yahoo.ycsb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestPhaseRunner {
+  static Map<String, Properties> read(Properties props, String schedule) throws IOException {
+    return PhaseRunner.readSchedule(props, new ByteArrayInputStream(schedule.getBytes("UTF-8")));
+  }
+
+  @Test
+  public void testPhasesOverrideClientProperties() throws IOException {
+    Properties props = new Properties();
+    props.setProperty("threadcount", "4");
+    props.setProperty("readproportion", "0.5");
+
+    Map<String, Properties> phases = read(props,
+        "phases=load, reads\n" +
+        "phase.load.type=load\n" +
+        "phase.reads.readproportion=1\n" +
+        "phase.reads.threadcount=16\n" +
+        "phase.other.threadcount=1\n");
+
+    assertEquals("[load, reads]", new ArrayList<String>(phases.keySet()).toString());
+    assertEquals("load", phases.get("load").getProperty("type"));
+    assertEquals("4", phases.get("load").getProperty("threadcount"));
+    assertEquals("0.5", phases.get("load").getProperty("readproportion"));
+    assertEquals("16", phases.get("reads").getProperty("threadcount"));
+    assertEquals("1", phases.get("reads").getProperty("readproportion"));
+    assertNull(phases.get("reads").getProperty("type"));
+    assertEquals("4", props.getProperty("threadcount"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testPhaseListedTwice() throws IOException {
+    read(new Properties(), "phases=a,b,a\n");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNoPhases() throws IOException {
+    read(new Properties(), "phase.a.target=100\n");
+  }
+}
@@ -0,0 +1,44 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestSaturationSearch {
+  static Histogram histogram(int from, int to) {
+    Histogram h = new Histogram(3);
+    for (int i = from; i <= to; i++) {
+      h.recordValue(i);
+    }
+    return h;
+  }
+
+  @Test
+  public void testP99PrefersIntendedLatencies() {
+    Map<String, Histogram> windows = new LinkedHashMap<String, Histogram>();
+    windows.put("READ", histogram(1, 100));
+    windows.put("UPDATE", histogram(101, 200));
+    windows.put("BATCH-INSERT", histogram(100000, 100000));
+    assertEquals(198, SaturationSearch.getP99(windows));
+
+    windows.put("Intended-READ", histogram(1001, 2000));
+    assertEquals(1990, SaturationSearch.getP99(windows));
+  }
+
+  @Test
+  public void testErrorRateLeavesOutBatches() {
+    Map<String, Map<Integer, Long>> codes = new HashMap<String, Map<Integer, Long>>();
+    Map<Integer, Long> read = new HashMap<Integer, Long>();
+    read.put(0, 95L);
+    read.put(-1, 5L);
+    codes.put("READ", read);
+    Map<Integer, Long> batch = new HashMap<Integer, Long>();
+    batch.put(-1, 10L);
+    codes.put("BATCH-INSERT", batch);
+    assertEquals(0.05, SaturationSearch.getErrorRate(codes), 1e-9);
+  }
+}
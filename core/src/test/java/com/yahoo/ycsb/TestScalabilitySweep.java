@@ -0,0 +1,38 @@
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestScalabilitySweep {
+  @Test
+  public void testFitRecoversCoefficients() {
+    double[] usl = {1000, 0.05, 0.0002};
+    int[] n = {2, 4, 8, 16, 32, 64, 128, 256};
+    double[] x = new double[n.length];
+    for (int i = 0; i < n.length; i++) {
+      x[i] = ScalabilitySweep.getThroughput(usl, n[i]);
+    }
+
+    double[] fit = ScalabilitySweep.fit(n, x);
+    assertEquals(1000, fit[0], 1e-6);
+    assertEquals(0.05, fit[1], 1e-9);
+    assertEquals(0.0002, fit[2], 1e-12);
+    assertEquals(Math.sqrt(0.95 / 0.0002), ScalabilitySweep.getPeakThreads(fit[1], fit[2]), 1e-6);
+  }
+
+  @Test
+  public void testFitNeedsThreeThreadCounts() {
+    assertNull(ScalabilitySweep.fit(new int[] {1, 2, 2}, new double[] {100, 190, 195}));
+    assertNull(ScalabilitySweep.fit(new int[] {1, 2, 4}, new double[] {100, 190, 0}));
+  }
+
+  @Test
+  public void testNoPeakWithoutCoherencyCost() {
+    assertEquals(0.0, ScalabilitySweep.getPeakThreads(0.1, 0));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testThreadCountsMustBePositive() {
+    ScalabilitySweep.parseThreadCounts("1,0,4");
+  }
+}
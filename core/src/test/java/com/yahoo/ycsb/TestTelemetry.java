@@ -0,0 +1,38 @@
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestTelemetry {
+  @Test
+  public void testSnapshotInPrometheusFormat() {
+    Properties props = new Properties();
+    Measurements measurements = new Measurements(props);
+    Telemetry telemetry = new Telemetry(props, measurements, new Vector<ClientThread>());
+
+    for (int i = 1; i <= 100; i++) {
+      measurements.measure("READ", i);
+    }
+    measurements.reportReturnCode("READ", 0);
+    measurements.reportReturnCode("READ", -1);
+    telemetry.takeSnapshot();
+
+    String metrics = Telemetry.toPrometheus(telemetry._snapshot);
+    assertTrue(metrics.contains("# TYPE ycsb_operations_total counter\nycsb_operations_total 0\n"));
+    assertTrue(metrics.contains("ycsb_latency_microseconds{operation=\"READ\",quantile=\"0.5\"} 50\n"));
+    assertTrue(metrics.contains("ycsb_latency_microseconds{operation=\"READ\",quantile=\"1\"} 100\n"));
+    assertTrue(metrics.contains("ycsb_return_codes_total{operation=\"READ\",code=\"-1\"} 1\n"));
+
+    assertEquals(Double.valueOf(100), telemetry.getLatency().get("READ max"));
+    assertEquals(Long.valueOf(1), telemetry.getReturnCodes().get("READ Return=0"));
+
+    //the next window starts empty
+    telemetry.takeSnapshot();
+    assertFalse(Telemetry.toPrometheus(telemetry._snapshot).contains("quantile=\""));
+  }
+}
@@ -0,0 +1,35 @@
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestValuePool {
+  @Test
+  public void testEntropyLimitsAlphabet() {
+    ValuePool pool = new ValuePool(4096, 3, new Random(1));
+    boolean[] seen = new boolean[256];
+    byte[] value = pool.newValue(4096).toArray();
+    for (byte b : value) {
+      assertTrue(b >= ' ' && b < ' ' + 8);
+      seen[b & 0xff] = true;
+    }
+    for (int c = ' '; c < ' ' + 8; c++) {
+      assertTrue(seen[c]);
+    }
+  }
+
+  @Test
+  public void testSlicesAndReset() {
+    ValuePool pool = new ValuePool(1000, 8, new Random(1));
+    ByteArrayByteIterator value = pool.newValue(100);
+    assertEquals(100, value.bytesLeft());
+    byte[] buf = new byte[150];
+    assertEquals(110, value.nextBuf(buf, 10));
+    assertFalse(value.hasNext());
+
+    pool.reset(value, 1000);
+    assertEquals(1000, value.toArray().length);
+  }
+}
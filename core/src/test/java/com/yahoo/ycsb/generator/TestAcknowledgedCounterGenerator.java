@@ -0,0 +1,66 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestAcknowledgedCounterGenerator {
+  @Test
+  public void testHighWaterMarkWaitsForGaps() {
+    AcknowledgedCounterGenerator gen = new AcknowledgedCounterGenerator(10);
+    assertEquals(9, gen.lastInt());
+    int a = gen.nextInt();
+    int b = gen.nextInt();
+    int c = gen.nextInt();
+    assertEquals(10, a);
+
+    gen.acknowledge(b);
+    gen.acknowledge(c);
+    assertEquals("unacknowledged key must hold back the high-water mark", 9, gen.lastInt());
+    gen.acknowledge(a);
+    assertEquals(12, gen.lastInt());
+  }
+
+  @Test
+  public void testBlocksAndRelease() {
+    AcknowledgedCounterGenerator gen = new AcknowledgedCounterGenerator(0, 4, 1);
+    assertEquals(0, gen.nextInt());
+    assertEquals(1, gen.nextInt());
+    gen.acknowledge(0);
+    gen.acknowledge(1);
+    assertEquals(1, gen.lastInt());
+    gen.releaseBlock();
+    assertEquals(3, gen.lastInt());
+    assertEquals(4, gen.nextInt());
+  }
+
+  @Test
+  public void testConcurrentAcknowledgements() throws InterruptedException {
+    final AcknowledgedCounterGenerator gen = new AcknowledgedCounterGenerator(0, 16, 8 * 16);
+    final int perthread = 100000;
+    final AtomicInteger violations = new AtomicInteger();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        public void run() {
+          for (int j = 0; j < perthread; j++) {
+            int before = gen.lastInt();
+            int v = gen.nextInt();
+            if (v <= before) {
+              violations.incrementAndGet();
+            }
+            gen.acknowledge(v);
+          }
+          gen.releaseBlock();
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(0, violations.get());
+    assertEquals(threads.length * perthread - 1, gen.lastInt());
+  }
+}
@@ -0,0 +1,27 @@
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestAliasGenerator {
+  @Test
+  public void testFrequenciesFollowWeights() {
+    double[] weights = {0.5, 0, 0.05, 0.3, 0.15};
+    AliasGenerator gen = new AliasGenerator(weights);
+    int samples = 1000000;
+    int[] counts = new int[weights.length];
+    for (int i = 0; i < samples; i++) {
+      counts[gen.nextInt()]++;
+    }
+    assertEquals("zero weight must never be chosen", 0, counts[1]);
+    for (int i = 0; i < weights.length; i++) {
+      assertEquals(weights[i], (double) counts[i] / samples, 0.005);
+    }
+    assertEquals(0.5 * 0 + 0.05 * 2 + 0.3 * 3 + 0.15 * 4, gen.mean(), 1e-9);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAllZeroWeights() {
+    new AliasGenerator(new double[] {0, 0});
+  }
+}
@@ -0,0 +1,45 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestIntervalHistogramLog {
+  @Test
+  public void testOneLinePerOperationAndWindow() {
+    Properties props = new Properties();
+    props.setProperty(IntervalHistogramLog.INTERVAL_LOG_WINDOW, "3600000");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    IntervalRecorders recorders = new IntervalRecorders(3);
+    IntervalHistogramLog log = new IntervalHistogramLog(props, recorders, new PrintStream(out));
+
+    for (int i = 1; i <= 1000; i++) {
+      recorders.record("READ", i);
+    }
+    recorders.recordIntended("READ", 5000);
+    log.writeWindows();
+    //nothing recorded in the second window
+    log.writeWindows();
+    recorders.record("UPDATE", 7);
+    log.close();
+
+    String[] lines = out.toString().split("\n");
+    assertEquals(4, lines.length);
+    assertEquals(IntervalHistogramLog.HEADER, lines[0]);
+
+    String[] read = lines[1].split(",");
+    assertEquals("READ", read[1]);
+    assertEquals("1000", read[2]);
+    assertEquals("500", read[5]);
+    assertEquals("990", read[6]);
+    assertEquals("999", read[7]);
+    assertEquals("1000", read[8]);
+
+    assertEquals("Intended-READ", lines[2].split(",")[1]);
+    assertEquals("UPDATE", lines[3].split(",")[1]);
+    assertEquals("7", lines[3].split(",")[8]);
+  }
+}
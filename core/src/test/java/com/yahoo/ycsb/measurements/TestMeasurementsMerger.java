@@ -0,0 +1,101 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.exporter.MergeableMeasurementsExporter;
+
+public class TestMeasurementsMerger {
+  static Properties hdrProperties() {
+    Properties props = new Properties();
+    props.setProperty("measurementtype", "hdrhistogram");
+    return props;
+  }
+
+  static byte[] export(int from, int to, long runtime) throws IOException {
+    Measurements m = new Measurements(hdrProperties());
+    for (int i = from; i <= to; i++) {
+      m.measure("READ", i);
+      m.reportReturnCode("READ", 0);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MergeableMeasurementsExporter exporter = new MergeableMeasurementsExporter(out);
+    exporter.write("OVERALL", "RunTime(ms)", runtime);
+    exporter.write("OVERALL", "Operations", to - from + 1);
+    exporter.write("OVERALL", "Throughput(ops/sec)", runtime > 0 ? 1000.0 * (to - from + 1) / runtime : 0);
+    m.exportMeasurements(exporter);
+    exporter.close();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testMergedPercentilesCoverAllClients() throws IOException {
+    Measurements merged = new Measurements(hdrProperties());
+    MeasurementsMerger merger = new MeasurementsMerger(merged);
+    merger.merge(new ByteArrayInputStream(export(1, 500, 1000)));
+    merger.merge(new ByteArrayInputStream(export(501, 1000, 2000)));
+
+    assertEquals(1000, merger.getOperations());
+    assertEquals(2000, merger.getRunTime());
+
+    TestOneMeasurementHdrHistogram.MapExporter exporter = new TestOneMeasurementHdrHistogram.MapExporter();
+    merged.getOneMeasurement("READ").exportMeasurements(exporter);
+    assertEquals(1000.0, exporter.values.get("Operations"));
+    assertEquals(1.0, exporter.values.get("MinLatency(us)"));
+    assertEquals(1000.0, exporter.values.get("MaxLatency(us)"));
+    assertEquals(500.0, exporter.values.get("50thPercentileLatency(us)"));
+    assertEquals(990.0, exporter.values.get("99thPercentileLatency(us)"));
+    assertEquals(1000.0, exporter.values.get("Return=0"));
+  }
+
+  @Test
+  public void testOperationsCountedWithoutRunTime() throws IOException {
+    Measurements merged = new Measurements(hdrProperties());
+    MeasurementsMerger merger = new MeasurementsMerger(merged);
+    merger.merge(new ByteArrayInputStream(export(1, 3, 0)));
+    merger.merge(new ByteArrayInputStream(export(4, 10, 0)));
+
+    assertEquals(10, merger.getOperations());
+    assertEquals(0, merger.getRunTime());
+  }
+
+  @Test
+  public void testHistogramBucketsKeepExactMinAndMax() throws IOException {
+    OneMeasurementHistogram m = new OneMeasurementHistogram("READ", new Properties());
+    m.measure(250);
+    m.measure(1500);
+    m.measure(1700);
+    m.measure(2345678);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MergeableMeasurementsExporter exporter = new MergeableMeasurementsExporter(out);
+    m.exportMeasurements(exporter);
+    exporter.close();
+
+    Measurements merged = new Measurements(hdrProperties());
+    new MeasurementsMerger(merged).merge(new ByteArrayInputStream(out.toByteArray()));
+    TestOneMeasurementHdrHistogram.MapExporter values = new TestOneMeasurementHdrHistogram.MapExporter();
+    merged.getOneMeasurement("READ").exportMeasurements(values);
+    assertEquals(4.0, values.values.get("Operations"));
+    assertEquals(250.0, values.values.get("MinLatency(us)"));
+    assertEquals(1000.0, values.values.get("50thPercentileLatency(us)"));
+    assertEquals(2345678.0, values.values.get("MaxLatency(us)"), 2345678 * 0.001);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testRejectsOtherFormats() throws IOException {
+    Measurements merged = new Measurements(hdrProperties());
+    new MeasurementsMerger(merged).merge(new ByteArrayInputStream("[READ], Operations, 10\n".getBytes()));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testRejectsBadHistograms() throws IOException {
+    Measurements merged = new Measurements(hdrProperties());
+    new MeasurementsMerger(merged).merge(new ByteArrayInputStream("READ\tHistogram\tnot*a*histogram\n".getBytes()));
+  }
+}
@@ -0,0 +1,53 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+public class TestOneMeasurementHdrHistogram {
+  static class MapExporter implements MeasurementsExporter {
+    HashMap<String, Double> values = new HashMap<String, Double>();
+
+    public void write(String metric, String measurement, int i) {
+      values.put(measurement, (double) i);
+    }
+
+    public void write(String metric, String measurement, double d) {
+      values.put(measurement, d);
+    }
+
+    public void close() {
+    }
+  }
+
+  @Test
+  public void testMicrosecondPercentiles() throws IOException {
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", new Properties());
+    for (int i = 1; i <= 1000; i++) {
+      m.measure(i);
+    }
+    m.reportReturnCode(0);
+
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    assertEquals(1000.0, exporter.values.get("Operations"));
+    assertEquals(1.0, exporter.values.get("MinLatency(us)"));
+    assertEquals(1000.0, exporter.values.get("MaxLatency(us)"));
+    assertEquals(500.0, exporter.values.get("50thPercentileLatency(us)"));
+    assertEquals(990.0, exporter.values.get("99thPercentileLatency(us)"));
+    assertEquals(999.0, exporter.values.get("99.9thPercentileLatency(us)"));
+    assertEquals(1.0, exporter.values.get("Return=0"));
+  }
+
+  @Test
+  public void testPercentileNames() {
+    assertEquals("50thPercentileLatency(us)", OneMeasurementHdrHistogram.percentileName(50));
+    assertEquals("99.99thPercentileLatency(us)", OneMeasurementHdrHistogram.percentileName(99.99));
+    assertEquals("1stPercentileLatency(us)", OneMeasurementHdrHistogram.percentileName(1));
+  }
+}
@@ -0,0 +1,49 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestOneMeasurementStripedHistogram {
+  @Test
+  public void testStripesMergeLikeOneHistogram() throws Exception {
+    final OneMeasurementStripedHistogram striped = new OneMeasurementStripedHistogram("READ", 4, new Properties());
+    OneMeasurementHistogram plain = new OneMeasurementHistogram("READ", new Properties());
+
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < 250; i++) {
+            striped.measure(thread * 1000 + i);
+            striped.reportReturnCode(i % 10 == 0 ? -1 : 0);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      for (int i = 0; i < 250; i++) {
+        plain.measure(t * 1000 + i);
+        plain.reportReturnCode(i % 10 == 0 ? -1 : 0);
+      }
+    }
+
+    //new threads are given consecutive stripes, so each of the 4 threads recorded into its own shard
+    for (OneMeasurementHistogram shard : striped._shards) {
+      assertEquals(Long.valueOf(225), shard.getReturnCodes().get(0));
+    }
+
+    assertEquals(plain.getSummary(), striped.getSummary());
+    assertEquals(plain.getReturnCodes(), striped.getReturnCodes());
+    TestOneMeasurementHdrHistogram.MapExporter expected = new TestOneMeasurementHdrHistogram.MapExporter();
+    plain.exportMeasurements(expected);
+    TestOneMeasurementHdrHistogram.MapExporter actual = new TestOneMeasurementHdrHistogram.MapExporter();
+    striped.exportMeasurements(actual);
+    assertEquals(expected.values, actual.values);
+    assertEquals(1000.0, actual.values.get("Operations"));
+  }
+}
@@ -0,0 +1,138 @@
+package com.yahoo.ycsb.throttle;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestRateProfile {
+  @Test
+  public void testStepAndRamp() {
+    Properties props = new Properties();
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "step");
+    props.setProperty(RateProfile.RATE_PROFILE_POINTS_PROPERTY, "10:1000, 20:3000, 30:0");
+    RateProfile step = RateProfile.newProfile(props, 0);
+    assertEquals(1000.0, step.getRate(0), 0.001);
+    assertEquals(1000.0, step.getRate(15), 0.001);
+    assertEquals(3000.0, step.getRate(20), 0.001);
+    assertEquals(0.0, step.getRate(100), 0.001);
+
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "ramp");
+    RateProfile ramp = RateProfile.newProfile(props, 0);
+    assertEquals(2000.0, ramp.getRate(15), 0.001);
+    assertEquals(1500.0, ramp.getRate(25), 0.001);
+    assertEquals(0.0, ramp.getRate(100), 0.001);
+  }
+
+  @Test
+  public void testSineAndSpike() {
+    Properties props = new Properties();
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "sine");
+    props.setProperty(RateProfile.RATE_PROFILE_PERIOD_PROPERTY, "40");
+    RateProfile sine = RateProfile.newProfile(props, 1000);
+    assertEquals(1000.0, sine.getRate(0), 0.001);
+    assertEquals(1500.0, sine.getRate(10), 0.001);
+    assertEquals(500.0, sine.getRate(30), 0.001);
+
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "spike");
+    props.setProperty(RateProfile.RATE_PROFILE_SPIKE_RATE_PROPERTY, "5000");
+    props.setProperty(RateProfile.RATE_PROFILE_SPIKE_START_PROPERTY, "5");
+    props.setProperty(RateProfile.RATE_PROFILE_SPIKE_DURATION_PROPERTY, "2");
+    RateProfile spike = RateProfile.newProfile(props, 1000);
+    assertEquals(1000.0, spike.getRate(4.9), 0.001);
+    assertEquals(5000.0, spike.getRate(6), 0.001);
+    assertEquals(1000.0, spike.getRate(7), 0.001);
+  }
+
+  @Test
+  public void testSharedScheduler() {
+    Properties props = new Properties();
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "step");
+    props.setProperty(RateProfile.RATE_PROFILE_POINTS_PROPERTY, "0:100000");
+    ArrivalScheduler[] schedulers = ArrivalScheduler.newSchedulers(props, 0, 4);
+    assertSame(schedulers[0], schedulers[3]);
+
+    //consecutive arrivals are 10 microseconds apart, whichever thread claims them
+    long first = schedulers[0].acquire();
+    long second = schedulers[1].acquire();
+    assertEquals(10000, second - first);
+    assertEquals(100000.0, schedulers[2].getTargetRate(), 0.001);
+
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "constant");
+    assertNull(ArrivalScheduler.newSchedulers(props, 0, 2)[0]);
+    schedulers = ArrivalScheduler.newSchedulers(props, 1000, 2);
+    assertNotSame(schedulers[0], schedulers[1]);
+    assertEquals(500.0, schedulers[0].getTargetRate(), 0.001);
+  }
+
+  @Test
+  public void testProfileStartingIdle() {
+    Properties props = new Properties();
+    props.setProperty(RateProfile.RATE_PROFILE_PROPERTY, "step");
+    props.setProperty(RateProfile.RATE_PROFILE_POINTS_PROPERTY, "0:0,0.5:1000");
+    ProfileArrivalScheduler scheduler = (ProfileArrivalScheduler) ArrivalScheduler.newSchedulers(props, 0, 1)[0];
+
+    //nothing is due during the first half second, then the first permit comes back as soon as it is due
+    long intended = scheduler.acquire();
+    long returned = System.nanoTime();
+    long start = scheduler._start.get();
+    assertEquals(500000000, intended - start);
+    assertTrue("returned after " + (returned - start) + " ns", returned - start < 900000000);
+  }
+
+  @Test
+  public void testGlobalThrottleIsShared() {
+    Properties props = new Properties();
+    props.setProperty(ArrivalScheduler.THROTTLE_PROPERTY, "global");
+    ArrivalScheduler[] schedulers = ArrivalScheduler.newSchedulers(props, 1000, 2);
+    assertSame(schedulers[0], schedulers[1]);
+    assertEquals(1000.0, schedulers[0].getTargetRate(), 0.001);
+  }
+
+  @Test
+  public void testGlobalThrottleDropsWhatDoesNotFitInTheBucket() {
+    final long[] clock = {1000000000L};
+    ProfileArrivalScheduler scheduler = new ProfileArrivalScheduler(
+        new PiecewiseRateProfile(Collections.singletonList(new double[] {0, 1000}), false), false, 2) {
+      @Override
+      long nanoTime() {
+        return clock[0];
+      }
+    };
+
+    long first = scheduler.acquire();
+    assertEquals(clock[0], first);
+
+    //50 ms later the permits due at 1..49 ms have queued up, the bucket keeps the last 2 of them
+    clock[0] += 50000000L;
+    assertEquals(2, scheduler.getOutstanding());
+    assertEquals(first + 49000000L, scheduler.acquire());
+    assertEquals(48, scheduler.getMissed());
+    assertEquals(first + 50000000L, scheduler.acquire());
+    assertEquals(0, scheduler.getOutstanding());
+    assertEquals(48, scheduler.getMissed());
+  }
+
+  @Test
+  public void testUnlimitedBucketCountsLatePermits() {
+    final long[] clock = {1000000000L};
+    ProfileArrivalScheduler scheduler = new ProfileArrivalScheduler(
+        new PiecewiseRateProfile(Collections.singletonList(new double[] {0, 1000}), false), false, 0) {
+      @Override
+      long nanoTime() {
+        return clock[0];
+      }
+    };
+
+    long first = scheduler.acquire();
+    assertEquals(0, scheduler.getMissed());
+
+    //50 ms later all the permits due at 1..50 ms are issued, those more than 1 ms behind count as missed
+    clock[0] += 50000000L;
+    for (int i = 1; i <= 50; i++) {
+      assertEquals(first + i * 1000000L, scheduler.acquire());
+    }
+    assertEquals(48, scheduler.getMissed());
+  }
+}
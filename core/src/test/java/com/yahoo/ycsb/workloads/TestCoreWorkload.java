@@ -0,0 +1,66 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.AsyncDB;
+import com.yahoo.ycsb.BoundedAsyncDB;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkload {
+  /** Holds on to the callbacks of inserts until they are completed explicitly. */
+  static class PendingDB extends AsyncDB {
+    final ArrayList<Callback> pending = new ArrayList<Callback>();
+
+    public void read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result, Callback callback) {
+      callback.complete(0);
+    }
+
+    public void scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result, Callback callback) {
+      callback.complete(0);
+    }
+
+    public void update(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+      callback.complete(0);
+    }
+
+    public void insert(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+      pending.add(callback);
+    }
+
+    public void delete(String table, String key, Callback callback) {
+      callback.complete(0);
+    }
+  }
+
+  @Test
+  public void testAsyncInsertsAreAcknowledgedOnCompletion() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    props.setProperty(Client.INFLIGHT_PROPERTY, "4");
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(props, 0, 1);
+
+    PendingDB async = new PendingDB();
+    BoundedAsyncDB db = new BoundedAsyncDB(async, 4);
+    workload.doTransactionInsert(db, state);
+    workload.doTransactionInsert(db, state);
+
+    //submitted but not written yet, so readers must not pick keys 10 and 11
+    assertEquals(9, workload.transactioninsertkeysequence.lastInt());
+
+    async.pending.get(1).complete(0);
+    assertEquals(9, workload.transactioninsertkeysequence.lastInt());
+    async.pending.get(0).complete(0);
+    assertEquals(11, workload.transactioninsertkeysequence.lastInt());
+    assertEquals(0, db.getInFlight());
+  }
+}
@@ -24,6 +24,7 @@ import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 //import java.util.HashMap;
 //import java.util.Properties;
@@ -32,6 +33,7 @@ import java.util.*;
 
 import com.yahoo.ycsb.measurements.Measurements;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.HTable;
 //import org.apache.hadoop.hbase.client.Scanner;
@@ -181,7 +183,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
   for (KeyValue kv : r.raw()) {
     result.put(
         Bytes.toString(kv.getQualifier()),
-        new ByteArrayByteIterator(kv.getValue()));
+        new ByteArrayByteIterator(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength()));
     if (_debug) {
       System.out.println("Result for field: "+Bytes.toString(kv.getQualifier())+
           " is: "+Bytes.toString(kv.getValue()));
@@ -255,7 +257,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
                 for (KeyValue kv : rr.raw()) {
                   rowResult.put(
                       Bytes.toString(kv.getQualifier()),
-                      new ByteArrayByteIterator(kv.getValue()));
+                      new ByteArrayByteIterator(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength()));
                 }
                 //add rowResult to result vector
                 result.add(rowResult);
@@ -310,39 +312,113 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         }
 
 
-        if (_debug) {
-            System.out.println("Setting up put for key: "+key);
+        try
+        {
+            _hTable.put(buildPut(key, values));
         }
-        Put p = new Put(Bytes.toBytes(key));
-        for (Map.Entry<String, ByteIterator> entry : values.entrySet())
+        catch (IOException e)
         {
             if (_debug) {
-                System.out.println("Adding field/value " + entry.getKey() + "/"+
-                  entry.getValue() + " to put request");
+                System.err.println("Error doing put: "+e);
+            }
+            return ServerError;
+        }
+        catch (ConcurrentModificationException e)
+        {
+            //do nothing for now...hope this is rare
+            return ServerError;
+        }
+
+        return Ok;
+    }
+
+    /**
+     * Update a batch of records in the database, handing all of their puts to the table at once.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to write
+     * @param values The field/value pairs to update, one HashMap per key
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
             }
-            p.add(_columnFamilyBytes,Bytes.toBytes(entry.getKey()),entry.getValue().toArray());
         }
 
         try
         {
-            _hTable.put(p);
+            List<Put> puts = new ArrayList<Put>(keys.size());
+            for (int i = 0; i < keys.size(); i++)
+            {
+                puts.add(buildPut(keys.get(i), values.get(i)));
+            }
+            _hTable.put(puts);
         }
         catch (IOException e)
         {
             if (_debug) {
-                System.err.println("Error doing put: "+e);
+                System.err.println("Error doing batch put: "+e);
             }
             return ServerError;
         }
         catch (ConcurrentModificationException e)
         {
-            //do nothing for now...hope this is rare
             return ServerError;
         }
 
         return Ok;
     }
 
+    /**
+     * Build the put writing the given field/value pairs into a record.
+     */
+    private Put buildPut(String key, HashMap<String,ByteIterator> values) throws IOException
+    {
+        if (_debug) {
+            System.out.println("Setting up put for key: "+key);
+        }
+        byte[] row = Bytes.toBytes(key);
+        Put p = new Put(row);
+
+        for (Map.Entry<String, ByteIterator> entry : values.entrySet())
+        {
+            if (_debug) {
+                System.out.println("Adding field/value " + entry.getKey() + "/"+
+                  entry.getValue() + " to put request");
+            }
+            byte[] qualifier = Bytes.toBytes(entry.getKey());
+            ByteBuffer value = entry.getValue().toByteBuffer();
+            if (value.hasArray())
+            {
+                //copy the value straight into the KeyValue, rather than into an array first
+                p.add(new KeyValue(row, 0, row.length,
+                    _columnFamilyBytes, 0, _columnFamilyBytes.length,
+                    qualifier, 0, qualifier.length,
+                    HConstants.LATEST_TIMESTAMP, KeyValue.Type.Put,
+                    value.array(), value.arrayOffset() + value.position(), value.remaining()));
+            }
+            else
+            {
+                byte[] bytes = new byte[value.remaining()];
+                value.get(bytes);
+                p.add(_columnFamilyBytes, qualifier, bytes);
+            }
+        }
+        return p;
+    }
+
     /**
      * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
      * record key.
@@ -357,6 +433,19 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         return update(table,key,values);
     }
 
+    /**
+     * Insert a batch of records in the database, handing all of their puts to the table at once.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values The field/value pairs to insert, one HashMap per key
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+    {
+        return batchUpdate(table,keys,values);
+    }
+
     /**
      * Delete a record from the database.
      *
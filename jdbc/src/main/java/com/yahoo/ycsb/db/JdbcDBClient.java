@@ -465,4 +465,71 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       return -1;
     }
 	}
+
+  @Override
+  public int batchInsert(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    return executeBatch(StatementType.Type.INSERT, tableName, keys, values);
+  }
+
+  @Override
+  public int batchUpdate(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    return executeBatch(StatementType.Type.UPDATE, tableName, keys, values);
+  }
+
+  /**
+   * Add one insert or update per record to the batch of its prepared statement, then execute the batch of each
+   * statement used. Records on different shards, or with different numbers of fields, use different statements.
+   */
+  private int executeBatch(StatementType.Type kind, String tableName, List<String> keys,
+      List<HashMap<String, ByteIterator>> values) {
+    if (tableName == null || keys.contains(null)) {
+      return -1;
+    }
+    Set<PreparedStatement> statements = new LinkedHashSet<PreparedStatement>();
+    try {
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        HashMap<String, ByteIterator> record = values.get(i);
+        StatementType type = new StatementType(kind, tableName, record.size(), getShardIndexByKey(key));
+        PreparedStatement statement = cachedStatements.get(type);
+        if (statement == null) {
+          if (kind == StatementType.Type.INSERT) {
+            statement = createAndCacheInsertStatement(type, key);
+          } else {
+            statement = createAndCacheUpdateStatement(type, key);
+          }
+        }
+        int index = 1;
+        if (kind == StatementType.Type.INSERT) {
+          statement.setString(index++, key);
+        }
+        for (Map.Entry<String, ByteIterator> entry : record.entrySet()) {
+          statement.setString(index++, entry.getValue().toString());
+        }
+        if (kind == StatementType.Type.UPDATE) {
+          statement.setString(index, key);
+        }
+        statement.addBatch();
+        statements.add(statement);
+      }
+      int ret = SUCCESS;
+      for (PreparedStatement statement : statements) {
+        for (int result : statement.executeBatch()) {
+          if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
+            ret = 1;
+          }
+        }
+      }
+      return ret;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch " + kind + " to table: " + tableName + e);
+      for (PreparedStatement statement : statements) {
+        try {
+          statement.clearBatch();
+        } catch (SQLException ignored) {
+        }
+      }
+      return -1;
+    }
+  }
 }
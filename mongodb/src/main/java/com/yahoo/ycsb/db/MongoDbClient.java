@@ -9,8 +9,10 @@
 
 package com.yahoo.ycsb.db;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -216,6 +218,48 @@ public class MongoDbClient extends DB {
         }
     }
 
+    /**
+     * Insert a batch of records in the database with a single bulk insert.
+     * Updates have no bulk form in this driver, so batchUpdate() falls back to
+     * one update per record.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values The field/value pairs to insert, one HashMap per key
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int batchInsert(String table, List<String> keys,
+            List<HashMap<String, ByteIterator>> values) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            List<DBObject> records = new ArrayList<DBObject>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                DBObject r = new BasicDBObject().append("_id", keys.get(i));
+                for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet()) {
+                    r.put(entry.getKey(), entry.getValue().toArray());
+                }
+                records.add(r);
+            }
+            WriteResult res = collection.insert(records, writeConcern);
+            return res.getError() == null ? 0 : 1;
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
     /**
      * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
      *
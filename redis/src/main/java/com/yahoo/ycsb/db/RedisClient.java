@@ -11,7 +11,9 @@ import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -20,7 +22,10 @@ import java.util.Set;
 import java.util.Vector;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
 
 public class RedisClient extends DB {
 
@@ -91,9 +96,31 @@ public class RedisClient extends DB {
         return result.isEmpty() ? 1 : 0;
     }
 
+    /**
+     * Convert the values to the byte arrays Jedis sends, without going
+     * through Strings.
+     */
+    static Map<byte[], byte[]> getByteMap(Map<String, ByteIterator> values) {
+        Map<byte[], byte[]> ret = new HashMap<byte[], byte[]>();
+        for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+            ByteBuffer value = entry.getValue().toByteBuffer();
+            byte[] bytes;
+            if (value.hasArray() && value.arrayOffset() == 0 && value.position() == 0
+                && value.remaining() == value.array().length) {
+                //the iterator made this array for us
+                bytes = value.array();
+            } else {
+                bytes = new byte[value.remaining()];
+                value.get(bytes);
+            }
+            ret.put(SafeEncoder.encode(entry.getKey()), bytes);
+        }
+        return ret;
+    }
+
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
-        if (jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK")) {
+        if (jedis.hmset(SafeEncoder.encode(key), getByteMap(values)).equals("OK")) {
             jedis.zadd(INDEX_KEY, hash(key), key);
             return 0;
         }
@@ -109,7 +136,42 @@ public class RedisClient extends DB {
 
     @Override
     public int update(String table, String key, HashMap<String, ByteIterator> values) {
-        return jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK") ? 0 : 1;
+        return jedis.hmset(SafeEncoder.encode(key), getByteMap(values)).equals("OK") ? 0 : 1;
+    }
+
+    @Override
+    public int batchInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        return pipelineWrites(keys, values, true);
+    }
+
+    @Override
+    public int batchUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        return pipelineWrites(keys, values, false);
+    }
+
+    /**
+     * Send the writes of a batch in one pipeline, so the whole batch costs a
+     * single round trip. Inserts also add their keys to the scan index.
+     */
+    private int pipelineWrites(List<String> keys, List<HashMap<String, ByteIterator>> values, boolean index) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> responses = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            responses.add(pipeline.hmset(SafeEncoder.encode(key), getByteMap(values.get(i))));
+            if (index) {
+                pipeline.zadd(INDEX_KEY, hash(key), key);
+            }
+        }
+        pipeline.sync();
+
+        int ret = 0;
+        for (Response<String> response : responses) {
+            if (!"OK".equals(response.get())) {
+                ret = 1;
+            }
+        }
+        return ret;
     }
 
     @Override